@@ -0,0 +1,94 @@
+package com.zhou.demo.ssl.benchmark;
+
+import com.zhou.demo.ssl.SslDemoApp;
+import com.zhou.demo.ssl.utils.FileUtils;
+import com.zhou.demo.ssl.utils.TrustAllCerts;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.KeyStore;
+
+/**
+ * @ClassName BenchmarkFixtures
+ * @Author JackZhou
+ * @Desc  基准测试共用的证书材料和内嵌服务，使用src/main/resources/httpsClient下的证书
+ *
+ * 自带的server.crt/client.crt已过期(只有ca.crt有效)，握手和请求类的基准测试客户端不校验服务端证书，
+ * 仍然携带client.jks中的客户端证书完成双向认证。
+ **/
+public class BenchmarkFixtures {
+
+    public static final String CA_CRT = "src/main/resources/httpsClient/ca.crt";
+    public static final String CLIENT_CRT = "src/main/resources/httpsClient/client.crt";
+    public static final String CLIENT_PKCS1_KEY = "src/main/resources/httpsClient/client.key";
+    public static final String CLIENT_PKCS8_KEY = "src/main/resources/httpsClient/target_pkcs8_privatekey.key";
+    public static final String CLIENT_JKS = "src/main/resources/httpsClient/client.jks";
+    public static final String CLIENT_JKS_PASS = "123456";
+
+    public static String read(String fileName) {
+        try {
+            return FileUtils.readFile(fileName);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  随机端口启动SslDemoApp，关闭限流，additionalArgs可覆盖application.yml中的配置
+     **/
+    public static ConfigurableApplicationContext startServer(String... additionalArgs) {
+        String[] args = new String[additionalArgs.length + 3];
+        args[0] = "--server.port=0";
+        args[1] = "--logging.level.root=WARN";
+        // 压测客户端只有一个证书身份，按调用方限流会把吞吐限制在rate-limit的配额上
+        args[2] = "--rate-limit.enabled=false";
+        System.arraycopy(additionalArgs, 0, args, 3, additionalArgs.length);
+        return new SpringApplicationBuilder(SslDemoApp.class).run(args);
+    }
+
+    public static int port(ConfigurableApplicationContext context) {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  携带client.jks客户端证书、不校验服务端证书的SSLContext
+     **/
+    public static SSLContext mutualTlsContext() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        try (InputStream in = new FileInputStream(CLIENT_JKS)) {
+            keyStore.load(in, CLIENT_JKS_PASS.toCharArray());
+        }
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, CLIENT_JKS_PASS.toCharArray());
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory.getKeyManagers(), new TrustManager[]{new TrustAllCerts()}, null);
+        return sslContext;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  直接用OkHttpClient发GET请求，不经过OkhttpUtils的熔断、重试预算和重试，非2xx响应直接失败
+     **/
+    public static String get(OkHttpClient client, String url) throws IOException {
+        try (Response response = client.newCall(new Request.Builder().url(url).get().build()).execute()) {
+            ResponseBody body = response.body();
+            if(!response.isSuccessful() || body == null){
+                throw new IllegalStateException("请求失败: " + response.code() + " " + url);
+            }
+            return body.string();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.zhou.demo.ssl.benchmark;
+
+import com.cloud.demo.common.bean.Person;
+import com.zhou.demo.ssl.service.PersonService;
+import com.zhou.demo.ssl.utils.OkhttpClientFactory;
+import com.zhou.demo.ssl.utils.TrustAllCerts;
+import com.zhou.demo.ssl.utils.TrustAllHostnameVerifier;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName ConnectionScalingBenchmark
+ * @Author JackZhou
+ * @Desc  servlet(Tomcat NIO)和reactive(Netty)两种模式在大量空闲mTLS连接下的请求延迟和线程数
+ *
+ * setup时先建立idleConnections条完成双向认证握手的空闲连接，再测量另一条keep-alive连接上的请求延迟，
+ * 建连前后的JVM线程数和堆使用量打印在输出中。客户端和服务端在同一进程，每条连接占两个文件句柄，
+ * 更多连接(如直接运行org.openjdk.jmh.Main ConnectionScaling -p idleConnections=20000)需要先调大ulimit -n。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Threads(8)
+@Fork(1)
+public class ConnectionScalingBenchmark {
+
+    @Param({"servlet", "reactive"})
+    private String mode;
+
+    @Param({"0", "1000", "5000"})
+    private int idleConnections;
+
+    private ConfigurableApplicationContext context;
+    private OkHttpClient client;
+    private String url;
+    private final List<SSLSocket> idleSockets = new ArrayList<>();
+
+    @Setup
+    public void setup() throws Exception {
+        // 空闲连接在测量期间不能被服务端超时关闭，Tomcat的max-connections也要大于空闲连接数
+        String maxConnections = "--server.tomcat.max-connections=" + (idleConnections + 1000);
+        context = "reactive".equals(mode)
+                ? BenchmarkFixtures.startServer("--spring.profiles.active=reactive", "--server.connection-timeout=600000")
+                : BenchmarkFixtures.startServer(maxConnections, "--server.connection-timeout=600000");
+        Person person = new Person();
+        person.setId("benchmark");
+        context.getBean(PersonService.class).save(person);
+        int port = BenchmarkFixtures.port(context);
+        url = "https://127.0.0.1:" + port + "/demo/bootswagger/person/benchmark";
+        client = OkhttpClientFactory.getClient(BenchmarkFixtures.mutualTlsContext().getSocketFactory(), new TrustAllCerts(),
+                TrustAllHostnameVerifier.INSTANCE);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        int threadsBefore = threads.getThreadCount();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        openIdleConnections(port);
+        System.gc();
+        System.out.printf("%n[%s] idle=%d threads %d -> %d, heap %dMB -> %dMB%n", mode, idleSockets.size(),
+                threadsBefore, threads.getThreadCount(), heapBefore >> 20, memory.getHeapMemoryUsage().getUsed() >> 20);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%n[%s] threads at teardown %d%n", mode, ManagementFactory.getThreadMXBean().getThreadCount());
+        for (SSLSocket socket : idleSockets) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 关闭失败不影响结果
+            }
+        }
+        idleSockets.clear();
+        context.close();
+    }
+
+    @Benchmark
+    public String request() throws IOException {
+        return BenchmarkFixtures.get(client, url);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  并发完成握手，握手后不发请求，连接保持空闲
+     **/
+    private void openIdleConnections(int port) throws Exception {
+        SSLContext sslContext = BenchmarkFixtures.mutualTlsContext();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<SSLSocket>> futures = new ArrayList<>(idleConnections);
+            for (int i = 0; i < idleConnections; i++) {
+                futures.add(executor.submit(() -> {
+                    SSLSocket socket = (SSLSocket) sslContext.getSocketFactory().createSocket("127.0.0.1", port);
+                    socket.startHandshake();
+                    return socket;
+                }));
+            }
+            for (Future<SSLSocket> future : futures) {
+                idleSockets.add(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.zhou.demo.ssl.benchmark;
+
+import com.zhou.demo.ssl.utils.JksClientCredentials;
+import com.zhou.demo.ssl.utils.PemClientCredentials;
+import com.zhou.demo.ssl.utils.SslContextRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName CredentialsBenchmark
+ * @Author JackZhou
+ * @Desc  getSSLParams的耗时，cold每次清空SslContextRegistry重新解析证书，cached命中注册表
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CredentialsBenchmark {
+
+    private String caCertContent;
+    private String clientCertContent;
+    private String clientKeyContent;
+
+    @Setup
+    public void setup() {
+        caCertContent = BenchmarkFixtures.read(BenchmarkFixtures.CA_CRT);
+        clientCertContent = BenchmarkFixtures.read(BenchmarkFixtures.CLIENT_CRT);
+        clientKeyContent = BenchmarkFixtures.read(BenchmarkFixtures.CLIENT_PKCS8_KEY);
+    }
+
+    @Benchmark
+    public PemClientCredentials.SSLParams pemCold() {
+        SslContextRegistry.clear();
+        return new PemClientCredentials(caCertContent, clientKeyContent, clientCertContent).getSSLParams();
+    }
+
+    @Benchmark
+    public PemClientCredentials.SSLParams pemCached() {
+        return new PemClientCredentials(caCertContent, clientKeyContent, clientCertContent).getSSLParams();
+    }
+
+    @Benchmark
+    public JksClientCredentials.SSLParams jksCold() throws FileNotFoundException {
+        SslContextRegistry.clear();
+        return jksCredentials().getSSLParams();
+    }
+
+    @Benchmark
+    public JksClientCredentials.SSLParams jksCached() throws FileNotFoundException {
+        return jksCredentials().getSSLParams();
+    }
+
+    private JksClientCredentials jksCredentials() throws FileNotFoundException {
+        return new JksClientCredentials(caCertContent, new FileInputStream(BenchmarkFixtures.CLIENT_JKS), BenchmarkFixtures.CLIENT_JKS_PASS);
+    }
+}
@@ -0,0 +1,66 @@
+package com.zhou.demo.ssl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName HandshakeBenchmark
+ * @Author JackZhou
+ * @Desc  双向认证握手耗时，full每次握手后使session失效，resumed复用同一个SSLContext中缓存的session
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class HandshakeBenchmark {
+
+    @Param({"full", "resumed"})
+    private String mode;
+
+    private ConfigurableApplicationContext context;
+    private SSLSocketFactory socketFactory;
+    private int port;
+
+    @Setup
+    public void setup() throws Exception {
+        context = BenchmarkFixtures.startServer();
+        port = BenchmarkFixtures.port(context);
+        socketFactory = BenchmarkFixtures.mutualTlsContext().getSocketFactory();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public SSLSession handshake() throws IOException {
+        try (SSLSocket socket = (SSLSocket) socketFactory.createSocket("127.0.0.1", port)) {
+            socket.startHandshake();
+            SSLSession session = socket.getSession();
+            if("full".equals(mode)){
+                session.invalidate();
+            }
+            return session;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.zhou.demo.ssl.benchmark;
+
+import com.cloud.demo.common.WebResponse;
+import com.cloud.demo.common.bean.Person;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.zhou.demo.ssl.controller.PersonController;
+import com.zhou.demo.ssl.json.OutputBufferPool;
+import com.zhou.demo.ssl.json.WebResponseHttpMessageConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName JsonSerializationBenchmark
+ * @Author JackZhou
+ * @Desc  WebResponse返回值的序列化：默认的MappingJackson2HttpMessageConverter(反射) 对比 WebResponseHttpMessageConverter
+ *        (Afterburner + 预先创建的writer + 复用缓冲区)的JSON/Smile/CBOR输出
+ *
+ * payload=get为单个Person(getById)，batch为100个Person(getBatch)。每次调用写到复用的内存流，不含网络开销。
+ * 每次调用的分配量见gc profiler的gc.alloc.rate.norm。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"get", "batch"})
+    private String payload;
+
+    private MappingJackson2HttpMessageConverter defaultConverter;
+    private WebResponseHttpMessageConverter fastConverter;
+    private WebResponse<?> response;
+    private Type returnType;
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream(16 * 1024);
+
+    @Setup
+    public void setup() throws Exception {
+        defaultConverter = new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().build());
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().modulesToInstall(new AfterburnerModule()).build();
+        fastConverter = new WebResponseHttpMessageConverter(new OutputBufferPool(64 * 1024))
+                .register(MediaType.APPLICATION_JSON_UTF8, json)
+                .register(WebResponseHttpMessageConverter.APPLICATION_SMILE,
+                        Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).modulesToInstall(new AfterburnerModule()).build())
+                .register(WebResponseHttpMessageConverter.APPLICATION_CBOR,
+                        Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).modulesToInstall(new AfterburnerModule()).build());
+        if("get".equals(payload)){
+            response = WebResponse.<Person>builder().result(person(1)).build();
+            returnType = PersonController.class.getMethod("getById", String.class).getGenericReturnType();
+        }else {
+            List<Person> persons = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                persons.add(person(i));
+            }
+            response = WebResponse.<List<Person>>builder().result(persons).build();
+            returnType = PersonController.class.getMethod("getBatch", List.class).getGenericReturnType();
+        }
+        // 两条路径的JSON输出必须一致
+        defaultJson();
+        byte[] expected = sink.toByteArray();
+        fastJson();
+        if(!Arrays.equals(expected, sink.toByteArray())){
+            throw new IllegalStateException("输出不一致: " + new String(expected, "UTF-8") + " / " + sink.toString("UTF-8"));
+        }
+    }
+
+    @Benchmark
+    public int defaultJson() throws IOException {
+        sink.reset();
+        defaultConverter.write(response, returnType, MediaType.APPLICATION_JSON_UTF8, new SinkOutputMessage(sink));
+        return sink.size();
+    }
+
+    @Benchmark
+    public int fastJson() throws IOException {
+        return fast(MediaType.APPLICATION_JSON_UTF8);
+    }
+
+    @Benchmark
+    public int fastSmile() throws IOException {
+        return fast(WebResponseHttpMessageConverter.APPLICATION_SMILE);
+    }
+
+    @Benchmark
+    public int fastCbor() throws IOException {
+        return fast(WebResponseHttpMessageConverter.APPLICATION_CBOR);
+    }
+
+    private int fast(MediaType mediaType) throws IOException {
+        sink.reset();
+        fastConverter.write(response, mediaType, new SinkOutputMessage(sink));
+        return sink.size();
+    }
+
+    private static Person person(int index) {
+        Person person = new Person();
+        person.setId("person-" + index);
+        person.setName("name-" + index);
+        person.setAge(20 + index % 50);
+        return person;
+    }
+
+    /**
+     * servlet响应的替身，body为复用的内存流
+     */
+    private static class SinkOutputMessage implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private final OutputStream body;
+
+        SinkOutputMessage(OutputStream body) {
+            this.body = body;
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.zhou.demo.ssl.benchmark;
+
+import com.zhou.demo.ssl.utils.PemBlock;
+import com.zhou.demo.ssl.utils.PemClientCredentials;
+import com.zhou.demo.ssl.utils.PemReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.PrivateKey;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName PemParseBenchmark
+ * @Author JackZhou
+ * @Desc  PEM私钥和证书的解析耗时
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PemParseBenchmark {
+
+    private String caCertContent;
+    private String clientCertContent;
+    private String clientKeyContent;
+    private byte[] clientPkcs1KeyBytes;
+    private byte[] caBundleBytes;
+
+    @Setup
+    public void setup() {
+        caCertContent = BenchmarkFixtures.read(BenchmarkFixtures.CA_CRT);
+        clientCertContent = BenchmarkFixtures.read(BenchmarkFixtures.CLIENT_CRT);
+        clientKeyContent = BenchmarkFixtures.read(BenchmarkFixtures.CLIENT_PKCS8_KEY);
+        clientPkcs1KeyBytes = BenchmarkFixtures.read(BenchmarkFixtures.CLIENT_PKCS1_KEY).getBytes(StandardCharsets.UTF_8);
+        caBundleBytes = (caCertContent + clientCertContent + caCertContent).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public PrivateKey readPrivateKey() throws Exception {
+        return PemClientCredentials.readPrivateKeyFile(clientKeyContent);
+    }
+
+    @Benchmark
+    public X509Certificate readCaCert() throws Exception {
+        return PemClientCredentials.readCertFile(caCertContent);
+    }
+
+    @Benchmark
+    public X509Certificate readClientCert() throws Exception {
+        return PemClientCredentials.readCertFile(clientCertContent);
+    }
+
+    @Benchmark
+    public PrivateKey readPkcs1PrivateKey() throws Exception {
+        return PemReader.privateKey(PemReader.read(clientPkcs1KeyBytes));
+    }
+
+    @Benchmark
+    public List<PemBlock> readCaBundleBlocks() {
+        return PemReader.read(caBundleBytes);
+    }
+}
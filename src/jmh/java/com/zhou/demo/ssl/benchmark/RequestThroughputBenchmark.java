@@ -0,0 +1,64 @@
+package com.zhou.demo.ssl.benchmark;
+
+import com.cloud.demo.common.bean.Person;
+import com.zhou.demo.ssl.service.PersonService;
+import com.zhou.demo.ssl.utils.OkhttpClientFactory;
+import com.zhou.demo.ssl.utils.TrustAllCerts;
+import com.zhou.demo.ssl.utils.TrustAllHostnameVerifier;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName RequestThroughputBenchmark
+ * @Author JackZhou
+ * @Desc  直接用OkHttpClient在本机回环上请求getById的吞吐，连接由共享连接池复用
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(8)
+@Fork(1)
+public class RequestThroughputBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private OkHttpClient client;
+    private String url;
+
+    @Setup
+    public void setup() throws Exception {
+        context = BenchmarkFixtures.startServer();
+        Person person = new Person();
+        person.setId("benchmark");
+        context.getBean(PersonService.class).save(person);
+        url = "https://127.0.0.1:" + BenchmarkFixtures.port(context) + "/demo/bootswagger/person/benchmark";
+        client = OkhttpClientFactory.getClient(BenchmarkFixtures.mutualTlsContext().getSocketFactory(), new TrustAllCerts(),
+                TrustAllHostnameVerifier.INSTANCE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String getById() throws IOException {
+        return BenchmarkFixtures.get(client, url);
+    }
+}
@@ -0,0 +1,105 @@
+package com.zhou.demo.ssl.benchmark;
+
+import com.cloud.demo.common.bean.Person;
+import com.zhou.demo.ssl.service.PersonService;
+import com.zhou.demo.ssl.utils.OkhttpClientFactory;
+import com.zhou.demo.ssl.utils.TrustAllCerts;
+import com.zhou.demo.ssl.utils.TrustAllHostnameVerifier;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName TlsEngineBenchmark
+ * @Author JackZhou
+ * @Desc  不同tls.engine组合的吞吐对比
+ *
+ * keepAlive：复用连接的请求吞吐，主要是记录层加解密的开销
+ * handshake：每次新建连接并完成双向认证握手(不复用session)，主要是握手的开销
+ * openssl需要tomcat-native，不可用时服务端回退到jsse，结果与jsse相同
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(8)
+@Fork(1)
+public class TlsEngineBenchmark {
+
+    @Param({"nio", "nio2"})
+    private String protocol;
+
+    @Param({"jsse", "openssl"})
+    private String implementation;
+
+    private ConfigurableApplicationContext context;
+    private SSLContext sslContext;
+    private OkHttpClient client;
+    private String url;
+    private int port;
+
+    @Setup
+    public void setup() throws Exception {
+        context = BenchmarkFixtures.startServer("--tls.engine.protocol=" + protocol, "--tls.engine.implementation=" + implementation);
+        Person person = new Person();
+        person.setId("benchmark");
+        context.getBean(PersonService.class).save(person);
+        port = BenchmarkFixtures.port(context);
+        url = "https://127.0.0.1:" + port + "/demo/bootswagger/person/benchmark";
+        sslContext = BenchmarkFixtures.mutualTlsContext();
+        client = OkhttpClientFactory.getClient(BenchmarkFixtures.mutualTlsContext().getSocketFactory(), new TrustAllCerts(),
+                TrustAllHostnameVerifier.INSTANCE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String keepAlive() throws IOException {
+        return BenchmarkFixtures.get(client, url);
+    }
+
+    @Benchmark
+    public int handshake() throws Exception {
+        try (SSLSocket socket = (SSLSocket) sslContext.getSocketFactory().createSocket("127.0.0.1", port)) {
+            socket.startHandshake();
+            // 作废session，下一次连接做完整握手
+            socket.getSession().invalidate();
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /demo/bootswagger/person/benchmark HTTP/1.1\r\nHost: 127.0.0.1\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[4096];
+            int total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+            }
+            return total;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.zhou.demo.ssl;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * @ClassName SslDemoApp
@@ -9,6 +11,8 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * @Date 2020/5/29  22:31
  **/
 @SpringBootApplication
+@EnableCaching
+@EnableScheduling
 public class SslDemoApp {
     public static void main(String[] args) {
         SpringApplication.run(SslDemoApp.class, args);
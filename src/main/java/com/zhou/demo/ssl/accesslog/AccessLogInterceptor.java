@@ -0,0 +1,82 @@
+package com.zhou.demo.ssl.accesslog;
+
+import com.zhou.demo.ssl.bean.ClientIdentity;
+import com.zhou.demo.ssl.filter.TlsSessionFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @ClassName AccessLogInterceptor
+ * @Author JackZhou
+ * @Desc  按接口采样记录访问日志
+ *
+ * preHandle时决定是否采样，未采样的请求不做任何分配；采样的请求在afterCompletion生成一条记录交给AccessLogWriter。
+ * 记录的字段：路径模板、路径变量id、状态码、耗时、TLS session是否复用、客户端证书主题、客户端地址。
+ **/
+@Component
+@ConditionalOnProperty(name = "access-log.enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AccessLogInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTR = AccessLogInterceptor.class.getName() + ".START";
+
+    private final AccessLogProperties properties;
+    private final AccessLogWriter writer;
+    private final Map<Method, Double> sampleRates = new ConcurrentHashMap<>();
+
+    public AccessLogInterceptor(AccessLogProperties properties, AccessLogWriter writer) {
+        this.properties = properties;
+        this.writer = writer;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if(!(handler instanceof HandlerMethod) || request.getAttribute(START_ATTR) != null){
+            return true;
+        }
+        double sampleRate = sampleRates.computeIfAbsent(((HandlerMethod) handler).getMethod(), this::sampleRate);
+        if(sampleRate >= 1.0 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate)){
+            request.setAttribute(START_ATTR, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTR);
+        if(start == null){
+            return;
+        }
+        long latencyNanos = System.nanoTime() - (Long) start;
+        Map<String, String> uriVariables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        ClientIdentity identity = (ClientIdentity) request.getAttribute(ClientIdentity.REQUEST_ATTR);
+        writer.submit(new AccessLogRecord(System.currentTimeMillis(),
+                request.getMethod(),
+                (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE),
+                uriVariables == null ? null : uriVariables.get("id"),
+                response.getStatus(),
+                latencyNanos,
+                (Boolean) request.getAttribute(TlsSessionFilter.SESSION_REUSED_ATTR),
+                identity == null ? null : identity.getSubject(),
+                request.getRemoteAddr(),
+                ex));
+    }
+
+    private double sampleRate(Method method) {
+        String key = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        Double sampleRate = properties.getSampleRates().get(key);
+        return sampleRate == null ? properties.getDefaultSampleRate() : sampleRate;
+    }
+}
@@ -0,0 +1,31 @@
+package com.zhou.demo.ssl.accesslog;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @ClassName AccessLogProperties
+ * @Author JackZhou
+ * @Desc  访问日志配置，采样率按 Controller类名.方法名 配置，未配置的接口使用defaultSampleRate
+ **/
+@Data
+@ConfigurationProperties(prefix = "access-log")
+public class AccessLogProperties {
+
+    private boolean enabled = true;
+
+    // 环形队列容量，写不及时队列满后丢弃
+    private int bufferSize = 8192;
+
+    // 0~1，0不记录，1全部记录
+    private double defaultSampleRate = 1.0;
+
+    // 例如 PersonController.getById: 0.01
+    private Map<String, Double> sampleRates = new HashMap<>();
+
+    // 队列为空时写线程的等待时间
+    private long idleWaitMillis = 10;
+}
@@ -0,0 +1,34 @@
+package com.zhou.demo.ssl.accesslog;
+
+/**
+ * @ClassName AccessLogRecord
+ * @Author JackZhou
+ * @Desc  一条访问日志，请求线程只收集引用，格式化由写线程完成
+ **/
+class AccessLogRecord {
+
+    final long timestampMillis;
+    final String method;
+    final String pattern;
+    final String id;
+    final int status;
+    final long latencyNanos;
+    final Boolean sessionReused;
+    final String clientSubject;
+    final String remoteAddr;
+    final Throwable error;
+
+    AccessLogRecord(long timestampMillis, String method, String pattern, String id, int status, long latencyNanos,
+                    Boolean sessionReused, String clientSubject, String remoteAddr, Throwable error) {
+        this.timestampMillis = timestampMillis;
+        this.method = method;
+        this.pattern = pattern;
+        this.id = id;
+        this.status = status;
+        this.latencyNanos = latencyNanos;
+        this.sessionReused = sessionReused;
+        this.clientSubject = clientSubject;
+        this.remoteAddr = remoteAddr;
+        this.error = error;
+    }
+}
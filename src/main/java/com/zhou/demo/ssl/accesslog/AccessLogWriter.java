@@ -0,0 +1,125 @@
+package com.zhou.demo.ssl.accesslog;
+
+import com.zhou.demo.ssl.utils.MpscRingBuffer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @ClassName AccessLogWriter
+ * @Author JackZhou
+ * @Desc  访问日志的后台写线程
+ *
+ * 请求线程只把记录放进环形队列，格式化和写日志(logger名为ACCESS_LOG)都在写线程完成，请求线程不会被appender的锁阻塞。
+ * 队列满时丢弃并计数，指标 access.log.records{result=written|dropped}。
+ **/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "access-log.enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AccessLogWriter implements InitializingBean, DisposableBean {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("ACCESS_LOG");
+
+    private final MpscRingBuffer<AccessLogRecord> buffer;
+    private final long idleWaitNanos;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final StringBuilder line = new StringBuilder(256);
+    private volatile boolean running = true;
+    private Thread thread;
+
+    public AccessLogWriter(AccessLogProperties properties, MeterRegistry meterRegistry) {
+        this.buffer = new MpscRingBuffer<>(properties.getBufferSize());
+        this.idleWaitNanos = TimeUnit.MILLISECONDS.toNanos(properties.getIdleWaitMillis());
+        FunctionCounter.builder("access.log.records", written, AtomicLong::get)
+                .tag("result", "written")
+                .register(meterRegistry);
+        FunctionCounter.builder("access.log.records", dropped, AtomicLong::get)
+                .tag("result", "dropped")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  请求线程调用，不阻塞，队列满时丢弃
+     **/
+    void submit(AccessLogRecord record) {
+        if(!buffer.offer(record)){
+            dropped.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        thread = new Thread(this::run, "access-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void run() {
+        while (running) {
+            if(!drain()){
+                LockSupport.parkNanos(this, idleWaitNanos);
+            }
+        }
+        // 退出前写完剩余的记录
+        drain();
+    }
+
+    private boolean drain() {
+        boolean any = false;
+        AccessLogRecord record;
+        while ((record = buffer.poll()) != null) {
+            any = true;
+            try {
+                ACCESS_LOG.info(format(record));
+                written.incrementAndGet();
+            } catch (Exception e) {
+                log.warn("写访问日志失败 {}", e.toString());
+            }
+        }
+        return any;
+    }
+
+    private String format(AccessLogRecord record) {
+        line.setLength(0);
+        line.append("ts=").append(record.timestampMillis)
+                .append(" method=").append(record.method)
+                .append(" path=").append(record.pattern)
+                .append(" status=").append(record.status)
+                .append(" latencyMs=").append(record.latencyNanos / 1000 / 1000.0);
+        if(record.id != null){
+            line.append(" id=").append(record.id);
+        }
+        if(record.sessionReused != null){
+            line.append(" tlsReused=").append(record.sessionReused);
+        }
+        if(record.clientSubject != null){
+            line.append(" clientCert=\"").append(record.clientSubject).append('"');
+        }
+        line.append(" remote=").append(record.remoteAddr);
+        if(record.error != null){
+            line.append(" error=").append(record.error.getClass().getSimpleName());
+        }
+        return line.toString();
+    }
+}
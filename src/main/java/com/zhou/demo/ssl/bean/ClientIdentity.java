@@ -0,0 +1,93 @@
+package com.zhou.demo.ssl.bean;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import javax.naming.InvalidNameException;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
+import java.security.cert.CertificateParsingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @ClassName ClientIdentity
+ * @Author JackZhou
+ * @Desc  双向认证时客户端证书对应的身份，由ClientIdentityResolver按TLS session解析一次后缓存
+ **/
+@Getter
+@ToString
+public class ClientIdentity {
+
+    public static final String REQUEST_ATTR = ClientIdentity.class.getName();
+
+    // RFC 2253格式的主题
+    private final String subject;
+    private final String commonName;
+    private final String issuer;
+    private final String serialNumber;
+    // dNSName、rfc822Name、URI、IP等类型的SAN
+    private final List<String> subjectAltNames;
+    private final long notAfterMillis;
+    private final boolean authorized;
+
+    private ClientIdentity(String subject, String commonName, String issuer, String serialNumber,
+                           List<String> subjectAltNames, long notAfterMillis, boolean authorized) {
+        this.subject = subject;
+        this.commonName = commonName;
+        this.issuer = issuer;
+        this.serialNumber = serialNumber;
+        this.subjectAltNames = subjectAltNames;
+        this.notAfterMillis = notAfterMillis;
+        this.authorized = authorized;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  解析证书链的第一张证书，allowedCommonNames为空时都允许
+     **/
+    public static ClientIdentity from(X509Certificate cert, Collection<String> allowedCommonNames) {
+        String subject = cert.getSubjectX500Principal().getName();
+        String commonName = commonName(subject);
+        boolean authorized = allowedCommonNames.isEmpty() || allowedCommonNames.contains(commonName);
+        return new ClientIdentity(subject, commonName, cert.getIssuerX500Principal().getName(),
+                cert.getSerialNumber().toString(16), subjectAltNames(cert), cert.getNotAfter().getTime(), authorized);
+    }
+
+    private static String commonName(String subject) {
+        try {
+            List<Rdn> rdns = new LdapName(subject).getRdns();
+            // LdapName中的RDN顺序与字符串相反，取最具体的CN
+            for (int i = rdns.size() - 1; i >= 0; i--) {
+                if("CN".equalsIgnoreCase(rdns.get(i).getType())){
+                    return String.valueOf(rdns.get(i).getValue());
+                }
+            }
+        } catch (InvalidNameException e) {
+            // 主题来自已校验的证书，不会出现，按没有CN处理
+        }
+        return null;
+    }
+
+    private static List<String> subjectAltNames(X509Certificate cert) {
+        Collection<List<?>> names;
+        try {
+            names = cert.getSubjectAlternativeNames();
+        } catch (CertificateParsingException e) {
+            return Collections.emptyList();
+        }
+        if(names == null){
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>(names.size());
+        for (List<?> name : names) {
+            if(name.size() > 1 && name.get(1) instanceof String){
+                result.add((String) name.get(1));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+}
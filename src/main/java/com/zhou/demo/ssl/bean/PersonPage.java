@@ -0,0 +1,23 @@
+package com.zhou.demo.ssl.bean;
+
+import com.cloud.demo.common.bean.Person;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * @ClassName PersonPage
+ * @Author JackZhou
+ * @Desc  游标分页结果，nextCursor为空表示没有下一页
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonPage {
+
+    private List<Person> items;
+
+    private String nextCursor;
+}
@@ -0,0 +1,25 @@
+package com.zhou.demo.ssl.bean;
+
+import com.cloud.demo.common.bean.Person;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * @ClassName PersonQueryResult
+ * @Author JackZhou
+ * @Desc  属性查询结果，plan为使用的索引(如hash:name)或scan，examined为实际读取校验的记录数
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonQueryResult {
+
+    private List<Person> items;
+
+    private String plan;
+
+    private long examined;
+}
@@ -0,0 +1,33 @@
+package com.zhou.demo.ssl.bean;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @ClassName TransferStats
+ * @Author JackZhou
+ * @Desc  导入导出的统计结果
+ **/
+@Data
+@NoArgsConstructor
+public class TransferStats {
+
+    private long records;
+
+    private long bytes;
+
+    private long millis;
+
+    private double recordsPerSecond;
+
+    private double bytesPerSecond;
+
+    public TransferStats(long records, long bytes, long millis) {
+        this.records = records;
+        this.bytes = bytes;
+        this.millis = millis;
+        double seconds = Math.max(millis, 1) / 1000.0;
+        this.recordsPerSecond = records / seconds;
+        this.bytesPerSecond = bytes / seconds;
+    }
+}
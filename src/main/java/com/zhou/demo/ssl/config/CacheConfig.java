@@ -0,0 +1,26 @@
+package com.zhou.demo.ssl.config;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.zhou.demo.ssl.service.PersonService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @ClassName CacheConfig
+ * @Author JackZhou
+ * @Desc  缓存配置，容量、过期和刷新策略见application.yml的spring.cache.caffeine.spec
+ **/
+@Configuration
+public class CacheConfig {
+
+    /**
+     * @Author JackZhou
+     * @Description  CaffeineCacheManager使用该loader创建LoadingCache，refreshAfterWrite依赖它异步刷新。
+     *               目前只有person一个缓存，key即person的id
+     **/
+    @Bean
+    public CacheLoader<Object, Object> personCacheLoader(ObjectProvider<PersonService> personService) {
+        return key -> personService.getObject().load((String) key);
+    }
+}
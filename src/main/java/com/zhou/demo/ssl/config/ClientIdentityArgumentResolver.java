@@ -0,0 +1,28 @@
+package com.zhou.demo.ssl.config;
+
+import com.zhou.demo.ssl.bean.ClientIdentity;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * @ClassName ClientIdentityArgumentResolver
+ * @Author JackZhou
+ * @Desc  Controller方法可以直接声明ClientIdentity参数，没有客户端证书时为null
+ **/
+public class ClientIdentityArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return ClientIdentity.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        return webRequest.getAttribute(ClientIdentity.REQUEST_ATTR, RequestAttributes.SCOPE_REQUEST);
+    }
+}
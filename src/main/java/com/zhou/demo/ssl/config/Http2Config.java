@@ -0,0 +1,63 @@
+package com.zhou.demo.ssl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.UpgradeProtocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @ClassName Http2Config
+ * @Author JackZhou
+ * @Desc  HTTP/2参数
+ *
+ * HTTPS连接器的h2由server.http2.enabled开启，默认关闭：ALPN协商需要JDK 9+的JSSE或tls.engine.implementation=openssl，
+ * Java 8默认JSSE下开启只会在启动时报错并退回HTTP/1.1。
+ * 内部明文连接器的h2c由connector.internal.h2c开启，两者使用同样的并发流配置。
+ **/
+@Slf4j
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class Http2Config {
+
+    @Value("${connector.http2.max-concurrent-streams:200}")
+    private int maxConcurrentStreams;
+
+    @Value("${connector.http2.max-concurrent-stream-execution:64}")
+    private int maxConcurrentStreamExecution;
+
+    @Value("${connector.http2.keep-alive-timeout-ms:60000}")
+    private long keepAliveTimeoutMillis;
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> http2Customizer() {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            for (UpgradeProtocol upgradeProtocol : connector.findUpgradeProtocols()) {
+                if(upgradeProtocol instanceof Http2Protocol){
+                    configure((Http2Protocol) upgradeProtocol);
+                    log.info("端口{} 开启HTTP/2，最大并发流{}", connector.getPort(), maxConcurrentStreams);
+                }
+            }
+        });
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  创建配置好的Http2Protocol，用于server.http2之外自行创建的连接器
+     **/
+    public Http2Protocol createHttp2Protocol() {
+        Http2Protocol http2Protocol = new Http2Protocol();
+        configure(http2Protocol);
+        return http2Protocol;
+    }
+
+    private void configure(Http2Protocol http2Protocol) {
+        http2Protocol.setMaxConcurrentStreams(maxConcurrentStreams);
+        http2Protocol.setMaxConcurrentStreamExecution(maxConcurrentStreamExecution);
+        http2Protocol.setKeepAliveTimeout(keepAliveTimeoutMillis);
+    }
+}
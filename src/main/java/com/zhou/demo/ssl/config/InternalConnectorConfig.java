@@ -0,0 +1,80 @@
+package com.zhou.demo.ssl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.connector.Connector;
+import org.apache.coyote.http11.Http11NioProtocol;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * @ClassName InternalConnectorConfig
+ * @Author JackZhou
+ * @Desc  内部明文HTTP连接器，供本机sidecar、健康检查等可信调用方使用，不再做一次TLS终结
+ *
+ * 默认只绑定回环地址，使用独立的工作线程池，与HTTPS连接器互不抢占线程。
+ * 两个连接器上可访问的路径由ConnectorAccessFilter按connector.*.allowed-paths限制。
+ * connector.internal.h2c开启后支持h2c(HTTP/1.1 Upgrade和直接发送HTTP/2前言两种方式)。
+ **/
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "connector.internal.enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class InternalConnectorConfig {
+
+    @Value("${connector.internal.address:127.0.0.1}")
+    private String address;
+
+    @Value("${connector.internal.port:11002}")
+    private int port;
+
+    @Value("${connector.internal.max-threads:50}")
+    private int maxThreads;
+
+    @Value("${connector.internal.min-spare-threads:5}")
+    private int minSpareThreads;
+
+    @Value("${connector.internal.max-connections:1000}")
+    private int maxConnections;
+
+    @Value("${connector.internal.h2c:true}")
+    private boolean h2c;
+
+    @Autowired
+    private Http2Config http2Config;
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> internalConnectorCustomizer() {
+        return factory -> factory.addAdditionalTomcatConnectors(createInternalConnector());
+    }
+
+    private Connector createInternalConnector() {
+        Connector connector = new Connector(Http11NioProtocol.class.getName());
+        connector.setScheme("http");
+        connector.setSecure(false);
+        connector.setPort(port);
+        Http11NioProtocol protocol = (Http11NioProtocol) connector.getProtocolHandler();
+        try {
+            protocol.setAddress(InetAddress.getByName(address));
+        } catch (UnknownHostException e) {
+            log.error("内部连接器地址无效 {}", address, e);
+            throw new RuntimeException(e);
+        }
+        protocol.setMaxThreads(maxThreads);
+        protocol.setMinSpareThreads(minSpareThreads);
+        protocol.setMaxConnections(maxConnections);
+        if(h2c){
+            connector.addUpgradeProtocol(http2Config.createHttp2Protocol());
+        }
+        log.info("内部HTTP连接器 {}:{}，工作线程{}-{}，h2c {}", address, port, minSpareThreads, maxThreads, h2c);
+        return connector;
+    }
+}
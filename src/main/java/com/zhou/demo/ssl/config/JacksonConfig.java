@@ -0,0 +1,61 @@
+package com.zhou.demo.ssl.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.zhou.demo.ssl.json.OutputBufferPool;
+import com.zhou.demo.ssl.json.WebResponseHttpMessageConverter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @ClassName JacksonConfig
+ * @Author JackZhou
+ * @Desc  JSON序列化配置，开关见application.yml的json
+ *
+ * Afterburner用生成的字节码代替反射读写属性，Boot会把Module类型的bean注册到应用的ObjectMapper，
+ * 接口、replication和持久化日志使用的都是这个ObjectMapper。
+ **/
+@Slf4j
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    @ConditionalOnProperty(value = "json.afterburner.enabled", havingValue = "true", matchIfMissing = true)
+    public Module afterburnerModule() {
+        return new AfterburnerModule();
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  HttpMessageConverter类型的bean由Boot放在默认converter之前，smile/cbor的ObjectMapper
+     *               同样由Boot的Jackson2ObjectMapperBuilder创建，spring.jackson配置和Afterburner对三种格式都生效
+     **/
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(value = "json.fast-path.enabled", havingValue = "true", matchIfMissing = true)
+    public WebResponseHttpMessageConverter webResponseHttpMessageConverter(ObjectMapper objectMapper,
+                                                                           ObjectProvider<Jackson2ObjectMapperBuilder> builders,
+                                                                           @Value("${json.fast-path.binary-formats:true}") boolean binaryFormats,
+                                                                           @Value("${json.fast-path.max-pooled-bytes:65536}") int maxPooledBytes) {
+        WebResponseHttpMessageConverter converter = new WebResponseHttpMessageConverter(new OutputBufferPool(maxPooledBytes))
+                .register(new MediaType(MediaType.APPLICATION_JSON, StandardCharsets.UTF_8), objectMapper);
+        if(binaryFormats){
+            converter.register(WebResponseHttpMessageConverter.APPLICATION_SMILE, builders.getObject().factory(new SmileFactory()).build())
+                    .register(WebResponseHttpMessageConverter.APPLICATION_CBOR, builders.getObject().factory(new CBORFactory()).build());
+        }
+        log.info("WebResponse序列化支持 {}，复用缓冲区上限{}字节", converter.getSupportedMediaTypes(), maxPooledBytes);
+        return converter;
+    }
+}
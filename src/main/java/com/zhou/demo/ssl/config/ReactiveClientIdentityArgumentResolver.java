@@ -0,0 +1,25 @@
+package com.zhou.demo.ssl.config;
+
+import com.zhou.demo.ssl.bean.ClientIdentity;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.result.method.SyncHandlerMethodArgumentResolver;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * @ClassName ReactiveClientIdentityArgumentResolver
+ * @Author JackZhou
+ * @Desc  reactive模式下Controller方法的ClientIdentity参数，没有客户端证书时为null
+ **/
+public class ReactiveClientIdentityArgumentResolver implements SyncHandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return ClientIdentity.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgumentValue(MethodParameter parameter, BindingContext bindingContext, ServerWebExchange exchange) {
+        return exchange.getAttribute(ClientIdentity.REQUEST_ATTR);
+    }
+}
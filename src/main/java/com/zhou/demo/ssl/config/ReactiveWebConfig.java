@@ -0,0 +1,57 @@
+package com.zhou.demo.ssl.config;
+
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+
+/**
+ * @ClassName ReactiveWebConfig
+ * @Author JackZhou
+ * @Desc  reactive模式(spring.profiles.active=reactive)下的WebFlux和Netty配置
+ *
+ * Netty的SSL同样由server.ssl配置(同一个server.jks，client-auth=need)，空闲的keep-alive连接不占用线程，
+ * 只有event loop线程(默认CPU核数)，连接数只受文件句柄限制。
+ * connector.netty.idle-timeout-ms大于0时关闭读空闲超过该时间的连接，0表示不主动关闭。
+ **/
+@Slf4j
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig implements WebFluxConfigurer {
+
+    @Value("${connector.netty.backlog:1024}")
+    private int backlog;
+
+    @Value("${connector.netty.idle-timeout-ms:0}")
+    private long idleTimeoutMillis;
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        configurer.addCustomResolver(new ReactiveClientIdentityArgumentResolver());
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  servlet模式需要的Tomcat也在classpath中，Boot的reactive自动配置会优先用Tomcat，这里显式声明Netty；
+     *               端口、server.ssl等通用配置仍由Boot的ReactiveWebServerFactoryCustomizer设置
+     **/
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        factory.addServerCustomizers(httpServer -> httpServer.tcpConfiguration(tcpServer -> {
+            tcpServer = tcpServer.selectorOption(ChannelOption.SO_BACKLOG, backlog)
+                    .option(ChannelOption.TCP_NODELAY, true);
+            if(idleTimeoutMillis > 0){
+                tcpServer = tcpServer.doOnConnection(connection -> connection.onReadIdle(idleTimeoutMillis, connection::dispose));
+            }
+            log.info("Netty backlog {}，空闲连接超时{}ms", backlog, idleTimeoutMillis);
+            return tcpServer;
+        }));
+        return factory;
+    }
+}
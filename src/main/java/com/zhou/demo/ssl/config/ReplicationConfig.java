@@ -0,0 +1,121 @@
+package com.zhou.demo.ssl.config;
+
+import com.zhou.demo.ssl.replication.ReplicationProperties;
+import com.zhou.demo.ssl.utils.ReloadableClientCredentials;
+import com.zhou.demo.ssl.utils.TrustAllHostnameVerifier;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.internal.tls.OkHostnameVerifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.WebFilter;
+
+import javax.servlet.Filter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * @ClassName ReplicationConfig
+ * @Author JackZhou
+ * @Desc  多节点复制，replication.enabled=true时开启。访问其他节点使用的客户端证书见replication.credentials
+ *
+ * 变更接口的请求体在进入controller前就会整体读入内存，所以在过滤器中按Content-Length检查：
+ * 没有Content-Length(chunked)返回411，超过replication.max-request-bytes返回413。
+ * 连接器按Content-Length截断请求体，实际读取的字节不会超过该值。
+ **/
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "replication.enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicationProperties.class)
+public class ReplicationConfig {
+
+    private static final String CHANGES_PATH = "/internal/replication/changes";
+
+    @Bean(destroyMethod = "close")
+    public ReloadableClientCredentials replicationCredentials(ReplicationProperties properties) {
+        ReplicationProperties.Credentials credentials = properties.getCredentials();
+        try {
+            ReloadableClientCredentials loaded = "jks".equalsIgnoreCase(credentials.getType())
+                    ? ReloadableClientCredentials.jks(path(credentials.getCaCert()), path(credentials.getClientJks()), credentials.getKeyStorePassword())
+                    : ReloadableClientCredentials.pem(path(credentials.getCaCert()), path(credentials.getClientKey()), path(credentials.getClientCert()));
+            return credentials.getReloadDebounceMillis() > 0 ? loaded.watch(credentials.getReloadDebounceMillis()) : loaded;
+        } catch (IOException e) {
+            log.error("加载复制使用的客户端证书失败", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  相同证书共享OkhttpClientFactory中的连接池和TLS session缓存
+     **/
+    @Bean
+    public OkHttpClient replicationHttpClient(ReloadableClientCredentials replicationCredentials, ReplicationProperties properties) {
+        return replicationCredentials.client(properties.getCredentials().isVerifyHostname()
+                ? OkHostnameVerifier.INSTANCE : TrustAllHostnameVerifier.INSTANCE);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<Filter> replicationRequestLimitFilter(ReplicationProperties properties) {
+        long maxRequestBytes = properties.getMaxRequestBytes();
+        FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>((request, response, chain) -> {
+            HttpStatus status = checkLength(((HttpServletRequest) request).getMethod(), request.getContentLengthLong(), maxRequestBytes);
+            if(status != null){
+                ((HttpServletResponse) response).sendError(status.value());
+                return;
+            }
+            chain.doFilter(request, response);
+        });
+        registration.addUrlPatterns(CHANGES_PATH);
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public WebFilter replicationRequestLimitWebFilter(ReplicationProperties properties) {
+        long maxRequestBytes = properties.getMaxRequestBytes();
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if(!CHANGES_PATH.equals(request.getPath().pathWithinApplication().value())){
+                return chain.filter(exchange);
+            }
+            HttpStatus status = checkLength(request.getMethodValue(), request.getHeaders().getContentLength(), maxRequestBytes);
+            if(status != null){
+                exchange.getResponse().setStatusCode(status);
+                return exchange.getResponse().setComplete();
+            }
+            return chain.filter(exchange);
+        };
+    }
+
+    /**
+     * 返回null表示放行，contentLength为-1表示请求没有Content-Length
+     */
+    private static HttpStatus checkLength(String method, long contentLength, long maxRequestBytes) {
+        if(!"POST".equals(method)){
+            return null;
+        }
+        if(contentLength < 0){
+            return HttpStatus.LENGTH_REQUIRED;
+        }
+        if(contentLength > maxRequestBytes){
+            log.warn("拒绝过大的复制请求，Content-Length {}", contentLength);
+            return HttpStatus.PAYLOAD_TOO_LARGE;
+        }
+        return null;
+    }
+
+    private static Path path(String file) {
+        return Paths.get(file);
+    }
+}
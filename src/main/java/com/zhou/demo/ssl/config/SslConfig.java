@@ -1,6 +1,7 @@
 package com.zhou.demo.ssl.config;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import springfox.documentation.builders.ApiInfoBuilder;
@@ -13,6 +14,7 @@ import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 @Configuration
 @EnableSwagger2
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class SslConfig {
 
     @Value("${spring.swagger.package:com.cloud.demo}")
@@ -33,22 +35,4 @@ public class SslConfig {
                 .version("1.0.0-SNAPSHOT")
                 .build();
     }
-
-    //下面是2.0的配置，1.x请搜索对应的设置
-//    public ServletWebServerFactory servletContainer(){
-//        TomcatServletWebServerFactory tomcat = new TomcatServletWebServerFactory();
-//        tomcat.addAdditionalTomcatConnectors(createHTTPConnector());
-//        return tomcat;
-//    }
-//
-//
-//    private Connector createHTTPConnector(){
-//        Connector connector = new Connector("org.apache.coyote.http11.Http11NioProtocol");
-//        //同时启用http（8080）、https（8443）两个端口
-//        connector.setScheme("http");
-//        connector.setSecure(false);
-//        connector.setPort(11001);
-//        connector.setRedirectPort(18443);
-//        return connector;
-//    }
 }
\ No newline at end of file
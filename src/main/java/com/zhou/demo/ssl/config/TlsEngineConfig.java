@@ -0,0 +1,96 @@
+package com.zhou.demo.ssl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.core.AprLifecycleListener;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.coyote.http11.AbstractHttp11JsseProtocol;
+import org.apache.coyote.http11.AbstractHttp11Protocol;
+import org.apache.coyote.http11.Http11Nio2Protocol;
+import org.apache.coyote.http11.Http11NioProtocol;
+import org.apache.tomcat.util.net.SSLHostConfig;
+import org.apache.tomcat.util.net.jsse.JSSEImplementation;
+import org.apache.tomcat.util.net.openssl.OpenSSLImplementation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @ClassName TlsEngineConfig
+ * @Author JackZhou
+ * @Desc  HTTPS连接器的IO模型和TLS实现
+ *
+ * tls.engine.protocol：nio(默认) / nio2
+ * tls.engine.implementation：jsse(默认) / openssl，openssl需要tomcat-native(libtcnative)，不可用时回退到jsse
+ * 协议和加密套件使用server.ssl.enabled-protocols、server.ssl.ciphers，工作线程使用server.tomcat.max-threads等
+ **/
+@Slf4j
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class TlsEngineConfig {
+
+    @Value("${tls.engine.protocol:nio}")
+    private String protocol;
+
+    @Value("${tls.engine.implementation:jsse}")
+    private String implementation;
+
+    @Value("${tls.engine.acceptor-threads:1}")
+    private int acceptorThreads;
+
+    @Value("${tls.engine.honor-cipher-order:true}")
+    private boolean honorCipherOrder;
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> tlsEngineCustomizer() {
+        return factory -> {
+            factory.setProtocol(protocolClassName());
+            String implementationName = implementationClassName();
+            factory.addConnectorCustomizers(connector -> {
+                ProtocolHandler protocolHandler = connector.getProtocolHandler();
+                if(!(protocolHandler instanceof AbstractHttp11JsseProtocol)){
+                    return;
+                }
+                AbstractHttp11JsseProtocol<?> httpProtocol = (AbstractHttp11JsseProtocol<?>) protocolHandler;
+                httpProtocol.setAcceptorThreadCount(acceptorThreads);
+                if(!httpProtocol.isSSLEnabled()){
+                    return;
+                }
+                httpProtocol.setSslImplementationName(implementationName);
+                for (SSLHostConfig sslHostConfig : ((AbstractHttp11Protocol<?>) httpProtocol).findSslHostConfigs()) {
+                    sslHostConfig.setHonorCipherOrder(honorCipherOrder);
+                }
+                log.info("端口{} 使用{} + {}，acceptor线程{}", connector.getPort(), httpProtocol.getClass().getSimpleName(),
+                        implementationName.substring(implementationName.lastIndexOf('.') + 1), acceptorThreads);
+            });
+        };
+    }
+
+    private String protocolClassName() {
+        switch (protocol.toLowerCase()) {
+            case "nio":
+                return Http11NioProtocol.class.getName();
+            case "nio2":
+                return Http11Nio2Protocol.class.getName();
+            default:
+                throw new IllegalArgumentException("不支持的tls.engine.protocol: " + protocol);
+        }
+    }
+
+    private String implementationClassName() {
+        switch (implementation.toLowerCase()) {
+            case "jsse":
+                return JSSEImplementation.class.getName();
+            case "openssl":
+                if(AprLifecycleListener.isAprAvailable()){
+                    return OpenSSLImplementation.class.getName();
+                }
+                log.warn("tomcat-native不可用，tls.engine.implementation=openssl回退到jsse");
+                return JSSEImplementation.class.getName();
+            default:
+                throw new IllegalArgumentException("不支持的tls.engine.implementation: " + implementation);
+        }
+    }
+}
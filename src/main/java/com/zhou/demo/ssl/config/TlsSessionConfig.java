@@ -0,0 +1,103 @@
+package com.zhou.demo.ssl.config;
+
+import com.zhou.demo.ssl.filter.TlsSessionFilter;
+import com.zhou.demo.ssl.utils.HandshakeStats;
+import com.zhou.demo.ssl.utils.OkhttpMetricsListener;
+import com.zhou.demo.ssl.utils.SslContextRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.coyote.http11.AbstractHttp11Protocol;
+import org.apache.tomcat.util.net.SSLHostConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * @ClassName TlsSessionConfig
+ * @Author JackZhou
+ * @Desc  TLS session复用配置，服务端Tomcat和客户端SslContextRegistry使用同一组参数
+ **/
+@Slf4j
+@Configuration
+public class TlsSessionConfig {
+
+    private static final String SERVER_TICKET_PROPERTY = "jdk.tls.server.enableSessionTicketExtension";
+    private static final String CLIENT_TICKET_PROPERTY = "jdk.tls.client.enableSessionTicketExtension";
+
+    @Value("${tls.session.cache-size:20480}")
+    private int sessionCacheSize;
+
+    @Value("${tls.session.timeout-seconds:86400}")
+    private int sessionTimeoutSeconds;
+
+    @Value("${tls.session.tickets:true}")
+    private boolean sessionTickets;
+
+    @PostConstruct
+    public void init() {
+        // JDK 13+ 支持无状态session ticket，需要在JSSE初始化前设置，启动参数中已指定时不覆盖
+        if(System.getProperty(SERVER_TICKET_PROPERTY) == null){
+            System.setProperty(SERVER_TICKET_PROPERTY, String.valueOf(sessionTickets));
+        }
+        if(System.getProperty(CLIENT_TICKET_PROPERTY) == null){
+            System.setProperty(CLIENT_TICKET_PROPERTY, String.valueOf(sessionTickets));
+        }
+        SslContextRegistry.configureSessionCache(sessionCacheSize, sessionTimeoutSeconds);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> tlsSessionCustomizer() {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            ProtocolHandler protocolHandler = connector.getProtocolHandler();
+            if(!(protocolHandler instanceof AbstractHttp11Protocol)){
+                return;
+            }
+            for (SSLHostConfig sslHostConfig : ((AbstractHttp11Protocol<?>) protocolHandler).findSslHostConfigs()) {
+                sslHostConfig.setSessionCacheSize(sessionCacheSize);
+                sslHostConfig.setSessionTimeout(sessionTimeoutSeconds);
+                log.info("端口{} TLS session缓存大小{}，超时{}秒", connector.getPort(), sessionCacheSize, sessionTimeoutSeconds);
+            }
+        });
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  握手次数指标 tls.handshakes{side=server|client, auth=one-way|two-way, type=full|abbreviated|unknown}，
+     *               服务端的统计来自TlsSessionFilter，只有servlet模式有
+     **/
+    @Bean
+    public MeterBinder tlsHandshakeMetrics(ObjectProvider<TlsSessionFilter> tlsSessionFilter) {
+        return registry -> {
+            tlsSessionFilter.ifAvailable(filter -> bindHandshakeStats(registry, "server", filter.getStats()));
+            bindHandshakeStats(registry, "client", OkhttpMetricsListener.CLIENT_STATS);
+        };
+    }
+
+    private static void bindHandshakeStats(MeterRegistry registry, String side, HandshakeStats stats) {
+        for (boolean twoWay : new boolean[]{false, true}) {
+            String auth = twoWay ? "two-way" : "one-way";
+            FunctionCounter.builder("tls.handshakes", stats, s -> s.get(false, twoWay))
+                    .tags("side", side, "auth", auth, "type", "full")
+                    .description("TLS完整握手次数")
+                    .register(registry);
+            FunctionCounter.builder("tls.handshakes", stats, s -> s.get(true, twoWay))
+                    .tags("side", side, "auth", auth, "type", "abbreviated")
+                    .description("TLS复用session的握手次数")
+                    .register(registry);
+            FunctionCounter.builder("tls.handshakes", stats, s -> s.getUnknown(twoWay))
+                    .tags("side", side, "auth", auth, "type", "unknown")
+                    .description("无法判断是否复用session的握手次数")
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.zhou.demo.ssl.config;
+
+import com.zhou.demo.ssl.accesslog.AccessLogInterceptor;
+import com.zhou.demo.ssl.accesslog.AccessLogProperties;
+import com.zhou.demo.ssl.ratelimit.RateLimitInterceptor;
+import com.zhou.demo.ssl.ratelimit.RateLimitProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * @ClassName WebMvcConfig
+ * @Author JackZhou
+ * @Desc  Spring MVC拦截器、参数解析器等配置
+ **/
+@Configuration
+@EnableConfigurationProperties({AccessLogProperties.class, RateLimitProperties.class})
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<AccessLogInterceptor> accessLogInterceptor;
+    private final ObjectProvider<RateLimitInterceptor> rateLimitInterceptor;
+
+    public WebMvcConfig(ObjectProvider<AccessLogInterceptor> accessLogInterceptor,
+                        ObjectProvider<RateLimitInterceptor> rateLimitInterceptor) {
+        this.accessLogInterceptor = accessLogInterceptor;
+        this.rateLimitInterceptor = rateLimitInterceptor;
+    }
+
+    /**
+     * 访问日志在前，被限流拒绝的请求(429)也会记录
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        accessLogInterceptor.ifAvailable(registry::addInterceptor);
+        rateLimitInterceptor.ifAvailable(interceptor -> registry.addInterceptor(interceptor)
+                .addPathPatterns(interceptor.getProperties().getPathPatterns()));
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new ClientIdentityArgumentResolver());
+    }
+}
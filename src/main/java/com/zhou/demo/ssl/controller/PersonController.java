@@ -2,19 +2,28 @@ package com.zhou.demo.ssl.controller;
 
 import com.cloud.demo.common.WebResponse;
 import com.cloud.demo.common.bean.Person;
+import com.zhou.demo.ssl.bean.PersonPage;
+import com.zhou.demo.ssl.bean.PersonQueryResult;
 import com.zhou.demo.ssl.service.PersonService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * @ClassName PersonController
  * @Description
@@ -32,14 +41,12 @@ public class PersonController {
     @ApiOperation(value = "根据id查询", notes = "备注")
     @RequestMapping(value = "/{id}", method = RequestMethod.GET)
     public WebResponse<Person> getById(@PathVariable("id") String id){
-        log.info("根据id {} 进行查询", id);
         return WebResponse.<Person>builder().result(personService.get(id)).build();
     }
 
     @ApiOperation("保存")
     @RequestMapping(value = "/save", method = RequestMethod.POST)
     public WebResponse<Person> save(@RequestBody Person person){
-        log.info("调用保存接口");
         return WebResponse.<Person>builder().result(personService.save(person)).build();
     }
 
@@ -48,7 +55,6 @@ public class PersonController {
     @ApiImplicitParam(name = "id", value = "用户id")
     @RequestMapping(value = "/{id}", method = RequestMethod.DELETE)
     public WebResponse<Person> delete(@PathVariable("id") String id){
-        log.info("调用删除接口");
         return WebResponse.<Person>builder().result(personService.delete(id)).build();
     }
 
@@ -58,4 +64,58 @@ public class PersonController {
         return WebResponse.<Person>builder().result(personService.update(person)).build();
     }
 
+    @ApiOperation(value = "批量保存", notes = "单次最多person.batch.max-size条")
+    @RequestMapping(value = "/save/batch", method = RequestMethod.POST)
+    public WebResponse<List<Person>> saveBatch(@RequestBody List<Person> persons){
+        return WebResponse.<List<Person>>builder().result(personService.saveBatch(persons)).build();
+    }
+
+    @ApiOperation(value = "根据id批量查询", notes = "只返回存在的记录")
+    @RequestMapping(value = "/get/batch", method = RequestMethod.POST)
+    public WebResponse<List<Person>> getBatch(@RequestBody List<String> ids){
+        return WebResponse.<List<Person>>builder().result(personService.getBatch(ids)).build();
+    }
+
+    @ApiOperation(value = "批量删除", notes = "返回被删除的记录")
+    @RequestMapping(value = "/batch", method = RequestMethod.DELETE)
+    public WebResponse<List<Person>> deleteBatch(@RequestBody List<String> ids){
+        return WebResponse.<List<Person>>builder().result(personService.deleteBatch(ids)).build();
+    }
+
+    @ApiOperation(value = "分页查询", notes = "按id升序，cursor传上一页返回的nextCursor，第一页不传")
+    @RequestMapping(value = "", method = RequestMethod.GET)
+    public WebResponse<PersonPage> list(@RequestParam(value = "cursor", required = false) String cursor,
+                                        @RequestParam(value = "limit", defaultValue = "100") int limit){
+        return WebResponse.<PersonPage>builder().result(personService.findPage(cursor, limit)).build();
+    }
+
+    @ApiOperation(value = "按属性查询", notes = "参数为 属性名=值 或 属性名.操作符=值，操作符in(逗号分隔)/gt/gte/lt/lte，多个条件为AND，"
+            + "person.index.hash和person.index.sorted中配置的属性走索引")
+    @RequestMapping(value = "/query", method = RequestMethod.GET)
+    public WebResponse<PersonQueryResult> query(@RequestParam Map<String, String> params){
+        String limit = params.remove("limit");
+        return WebResponse.<PersonQueryResult>builder()
+                .result(personService.query(params, limit == null ? 100 : parseLimit(limit)))
+                .build();
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  参数不合法(查询条件、limit、批量数量等)返回400，不再以500返回
+     **/
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public WebResponse<Void> badRequest(IllegalArgumentException e){
+        log.debug("请求参数不合法: {}", e.getMessage());
+        return WebResponse.<Void>builder().code(HttpStatus.BAD_REQUEST.value()).message(e.getMessage()).build();
+    }
+
+    private static int parseLimit(String limit){
+        try {
+            return Integer.parseInt(limit.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("limit不是整数: " + limit);
+        }
+    }
+
 }
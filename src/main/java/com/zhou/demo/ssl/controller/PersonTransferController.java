@@ -0,0 +1,64 @@
+package com.zhou.demo.ssl.controller;
+
+import com.cloud.demo.common.WebResponse;
+import com.zhou.demo.ssl.bean.TransferStats;
+import com.zhou.demo.ssl.service.PersonTransferService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @ClassName PersonTransferController
+ * @Author JackZhou
+ * @Desc  person全量导入导出，NDJSON格式，每行一个person
+ **/
+@RestController
+@RequestMapping("/demo/bootswagger/person")
+@Slf4j
+@Api(tags = "人员导入导出")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class PersonTransferController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    @Autowired
+    private PersonTransferService personTransferService;
+
+    @ApiOperation(value = "导出", notes = "流式输出全部person，不在内存中聚合")
+    @RequestMapping(value = "/export", method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> export(){
+        StreamingResponseBody body = personTransferService::exportTo;
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    @ApiOperation(value = "导入", notes = "请求体为NDJSON，边读边分批保存")
+    @RequestMapping(value = "/import", method = RequestMethod.POST)
+    public WebResponse<TransferStats> importPersons(InputStream body) throws IOException {
+        return WebResponse.<TransferStats>builder().result(personTransferService.importFrom(body)).build();
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  请求体中有不合法的行返回400，result为中断前已导入的统计
+     **/
+    @ExceptionHandler(PersonTransferService.InvalidLineException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public WebResponse<TransferStats> invalidLine(PersonTransferService.InvalidLineException e){
+        return WebResponse.<TransferStats>builder().code(HttpStatus.BAD_REQUEST.value()).message(e.getMessage())
+                .result(e.getImported()).build();
+    }
+}
@@ -0,0 +1,158 @@
+package com.zhou.demo.ssl.controller;
+
+import com.cloud.demo.common.WebResponse;
+import com.cloud.demo.common.bean.Person;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.zhou.demo.ssl.bean.PersonPage;
+import com.zhou.demo.ssl.bean.TransferStats;
+import com.zhou.demo.ssl.service.PersonService;
+import com.zhou.demo.ssl.service.PersonTransferService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * @ClassName ReactivePersonTransferController
+ * @Author JackZhou
+ * @Desc  reactive模式下的person导入导出，接口和PersonTransferController一致
+ *
+ * 导出每页生成一个DataBuffer，下游消费完才读取下一页；导入时请求体的DataBuffer复制后立即释放，
+ * 最多预取IMPORT_PREFETCH个分片，由PersonTransferService边读边解析，上传多大内存中都只保留少量分片。
+ * 两者都在elastic线程上执行，不阻塞event loop。
+ * 导入请求的Content-Type需要是application/x-ndjson，表单类型的请求体会被WebFlux先当作表单读取。
+ **/
+@Slf4j
+@RestController
+@RequestMapping("/demo/bootswagger/person")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactivePersonTransferController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    // 导入时最多缓冲的请求体分片数，读不过来时不再向netty请求数据
+    private static final int IMPORT_PREFETCH = 16;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PersonTransferService personTransferService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${person.transfer.batch-size:500}")
+    private int batchSize;
+
+    @RequestMapping(value = "/export", method = RequestMethod.GET)
+    public ResponseEntity<Flux<DataBuffer>> export(ServerHttpResponse response){
+        DataBufferFactory bufferFactory = response.bufferFactory();
+        ObjectWriter writer = objectMapper.writerFor(Person.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        Flux<DataBuffer> body = Flux.<DataBuffer, ExportCursor>generate(ExportCursor::new, (cursor, sink) -> {
+            PersonPage page = personService.findPage(cursor.next, batchSize);
+            if(!page.getItems().isEmpty()){
+                sink.next(writePage(bufferFactory, writer, page));
+            }
+            cursor.next = page.getNextCursor();
+            if(cursor.next == null){
+                sink.complete();
+            }
+            return cursor;
+        }).subscribeOn(Schedulers.elastic());
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    @RequestMapping(value = "/import", method = RequestMethod.POST)
+    public Mono<WebResponse<TransferStats>> importPersons(ServerHttpRequest request){
+        Flux<byte[]> chunks = request.getBody().map(ReactivePersonTransferController::drain);
+        return Mono.fromCallable(() -> {
+                    // 关闭Stream时取消订阅，导入中途失败不会继续读取请求体
+                    try (Stream<byte[]> stream = chunks.toStream(IMPORT_PREFETCH)) {
+                        return personTransferService.importFrom(chunkStream(stream.iterator()));
+                    }
+                })
+                .subscribeOn(Schedulers.elastic())
+                .map(stats -> WebResponse.<TransferStats>builder().result(stats).build());
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  请求体中有不合法的行返回400，result为中断前已导入的统计
+     **/
+    @ExceptionHandler(PersonTransferService.InvalidLineException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public WebResponse<TransferStats> invalidLine(PersonTransferService.InvalidLineException e){
+        return WebResponse.<TransferStats>builder().code(HttpStatus.BAD_REQUEST.value()).message(e.getMessage())
+                .result(e.getImported()).build();
+    }
+
+    private static byte[] drain(DataBuffer buffer) {
+        try {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            return bytes;
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private static InputStream chunkStream(Iterator<byte[]> chunks) {
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            @Override
+            public boolean hasMoreElements() {
+                return chunks.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return new ByteArrayInputStream(chunks.next());
+            }
+        });
+    }
+
+    private static DataBuffer writePage(DataBufferFactory bufferFactory, ObjectWriter writer, PersonPage page) {
+        DataBuffer buffer = bufferFactory.allocateBuffer();
+        try (OutputStream out = buffer.asOutputStream()) {
+            for (Person person : page.getItems()) {
+                writer.writeValue(out, person);
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            DataBufferUtils.release(buffer);
+            throw new UncheckedIOException(e);
+        }
+        return buffer;
+    }
+
+    private static class ExportCursor {
+        private String next;
+    }
+}
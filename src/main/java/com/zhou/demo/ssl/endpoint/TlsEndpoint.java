@@ -0,0 +1,77 @@
+package com.zhou.demo.ssl.endpoint;
+
+import com.zhou.demo.ssl.filter.TlsSessionFilter;
+import com.zhou.demo.ssl.utils.HandshakeStats;
+import com.zhou.demo.ssl.utils.OkhttpClientFactory;
+import com.zhou.demo.ssl.utils.OkhttpMetricsListener;
+import com.zhou.demo.ssl.utils.OkhttpUtils;
+import com.zhou.demo.ssl.utils.SslContextRegistry;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @ClassName TlsEndpoint
+ * @Author JackZhou
+ * @Desc  /actuator/tls，汇总服务端和客户端的握手次数、SSLContext注册表和Okhttp连接池状态
+ *
+ * 服务端的full/abbreviated只统计TLS 1.2连接，TLS 1.3握手无法判断是否复用，全部计入unknown；客户端不受此限制。
+ * 耗时分布见/actuator/metrics下的tls.handshake、okhttp.call.phase、http.server.requests
+ **/
+@Component
+@Endpoint(id = "tls")
+public class TlsEndpoint {
+
+    // 服务端握手统计只有servlet模式有
+    private final ObjectProvider<TlsSessionFilter> tlsSessionFilter;
+
+    public TlsEndpoint(ObjectProvider<TlsSessionFilter> tlsSessionFilter) {
+        this.tlsSessionFilter = tlsSessionFilter;
+    }
+
+    @ReadOperation
+    public Map<String, Object> tls() {
+        Map<String, Object> handshakes = new LinkedHashMap<>();
+        tlsSessionFilter.ifAvailable(filter -> handshakes.put("server", handshakes(filter.getStats())));
+        handshakes.put("client", handshakes(OkhttpMetricsListener.CLIENT_STATS));
+
+        Map<String, Object> sslContexts = new LinkedHashMap<>();
+        sslContexts.put("size", SslContextRegistry.size());
+        sslContexts.put("hits", SslContextRegistry.hitCount());
+        sslContexts.put("misses", SslContextRegistry.missCount());
+
+        ConnectionPool connectionPool = OkhttpClientFactory.connectionPool();
+        Dispatcher dispatcher = OkhttpClientFactory.dispatcher();
+        Map<String, Object> okhttp = new LinkedHashMap<>();
+        okhttp.put("clients", OkhttpClientFactory.clientCount());
+        okhttp.put("connections", connectionPool.connectionCount());
+        okhttp.put("idleConnections", connectionPool.idleConnectionCount());
+        okhttp.put("runningCalls", dispatcher.runningCallsCount());
+        okhttp.put("queuedCalls", dispatcher.queuedCallsCount());
+        okhttp.put("inUseConnections", OkhttpUtils.inUseConnections());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("handshakes", handshakes);
+        result.put("sslContexts", sslContexts);
+        result.put("okhttp", okhttp);
+        return result;
+    }
+
+    private static Map<String, Object> handshakes(HandshakeStats stats) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (boolean twoWay : new boolean[]{false, true}) {
+            Map<String, Long> byType = new LinkedHashMap<>();
+            byType.put("full", stats.get(false, twoWay));
+            byType.put("abbreviated", stats.get(true, twoWay));
+            byType.put("unknown", stats.getUnknown(twoWay));
+            result.put(twoWay ? "two-way" : "one-way", byType);
+        }
+        return result;
+    }
+}
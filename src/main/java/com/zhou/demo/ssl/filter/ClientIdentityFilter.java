@@ -0,0 +1,54 @@
+package com.zhou.demo.ssl.filter;
+
+import com.zhou.demo.ssl.bean.ClientIdentity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.cert.X509Certificate;
+
+/**
+ * @ClassName ClientIdentityFilter
+ * @Author JackZhou
+ * @Desc  解析客户端证书得到ClientIdentity并写入请求属性ClientIdentity.REQUEST_ATTR，解析和缓存见ClientIdentityResolver
+ *
+ * client-identity.allowed-common-names不为空时，CN不在其中的请求返回403；没有客户端证书的请求(内部明文连接器)不检查。
+ **/
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ClientIdentityFilter extends OncePerRequestFilter {
+
+    private static final String SSL_SESSION_ID_ATTR = "javax.servlet.request.ssl_session_id";
+    private static final String CLIENT_CERT_ATTR = "javax.servlet.request.X509Certificate";
+
+    private final ClientIdentityResolver resolver;
+
+    public ClientIdentityFilter(ClientIdentityResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        ClientIdentity identity = resolver.resolve((String) request.getAttribute(SSL_SESSION_ID_ATTR),
+                (X509Certificate[]) request.getAttribute(CLIENT_CERT_ATTR));
+        if(identity != null){
+            if(!identity.isAuthorized()){
+                log.debug("客户端{}未授权访问 {}", identity.getCommonName(), request.getRequestURI());
+                response.sendError(HttpServletResponse.SC_FORBIDDEN);
+                return;
+            }
+            request.setAttribute(ClientIdentity.REQUEST_ATTR, identity);
+        }
+        filterChain.doFilter(request, response);
+    }
+}
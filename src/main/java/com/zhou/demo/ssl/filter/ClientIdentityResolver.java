@@ -0,0 +1,72 @@
+package com.zhou.demo.ssl.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zhou.demo.ssl.bean.ClientIdentity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName ClientIdentityResolver
+ * @Author JackZhou
+ * @Desc  客户端证书解析成ClientIdentity，servlet的ClientIdentityFilter和reactive的ClientIdentityWebFilter共用
+ *
+ * 按TLS session id缓存，同一session上的请求只解析一次证书。缓存的过期时间和容量与tls.session一致，
+ * session在服务端过期或被挤出缓存后，对应的身份也会随之淘汰。TLS 1.3复用session时session id会变化，每条连接解析一次。
+ * server.ssl证书重新加载(ServerSslReloader)后清空，旧CA下建立的session上的请求重新解析。
+ * 缓存命中率见 cache.gets{cache=clientIdentity}。
+ **/
+@Component
+public class ClientIdentityResolver {
+
+    private final Cache<String, ClientIdentity> identities;
+    private final Set<String> allowedCommonNames;
+
+    public ClientIdentityResolver(@Value("${tls.session.cache-size:20480}") int sessionCacheSize,
+                                  @Value("${tls.session.timeout-seconds:86400}") int sessionTimeoutSeconds,
+                                  @Value("${client-identity.allowed-common-names:}") String[] allowedCommonNames,
+                                  MeterRegistry meterRegistry) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+        if(sessionTimeoutSeconds > 0){
+            builder.expireAfterAccess(sessionTimeoutSeconds, TimeUnit.SECONDS);
+        }
+        if(sessionCacheSize > 0){
+            builder.maximumSize(sessionCacheSize);
+        }
+        this.identities = builder.build();
+        this.allowedCommonNames = new HashSet<>(Arrays.asList(allowedCommonNames));
+        CaffeineCacheMetrics.monitor(meterRegistry, identities, "clientIdentity");
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  没有客户端证书时返回null，sessionId为空时不缓存
+     **/
+    public ClientIdentity resolve(String sessionId, Certificate[] certs) {
+        if(certs == null || certs.length == 0 || !(certs[0] instanceof X509Certificate)){
+            return null;
+        }
+        X509Certificate cert = (X509Certificate) certs[0];
+        if(sessionId == null){
+            return ClientIdentity.from(cert, allowedCommonNames);
+        }
+        return identities.get(sessionId, key -> ClientIdentity.from(cert, allowedCommonNames));
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  信任的CA或服务端证书变化时清空全部缓存
+     **/
+    public void invalidateAll() {
+        identities.invalidateAll();
+    }
+}
@@ -0,0 +1,47 @@
+package com.zhou.demo.ssl.filter;
+
+import com.zhou.demo.ssl.bean.ClientIdentity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.SslInfo;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * @ClassName ClientIdentityWebFilter
+ * @Author JackZhou
+ * @Desc  reactive模式下的ClientIdentityFilter，身份写入exchange属性ClientIdentity.REQUEST_ATTR
+ **/
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ClientIdentityWebFilter implements WebFilter {
+
+    private final ClientIdentityResolver resolver;
+
+    public ClientIdentityWebFilter(ClientIdentityResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        SslInfo sslInfo = exchange.getRequest().getSslInfo();
+        ClientIdentity identity = sslInfo == null ? null : resolver.resolve(sslInfo.getSessionId(), sslInfo.getPeerCertificates());
+        if(identity != null){
+            if(!identity.isAuthorized()){
+                log.debug("客户端{}未授权访问 {}", identity.getCommonName(), exchange.getRequest().getPath());
+                exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
+                return exchange.getResponse().setComplete();
+            }
+            exchange.getAttributes().put(ClientIdentity.REQUEST_ATTR, identity);
+        }
+        return chain.filter(exchange);
+    }
+}
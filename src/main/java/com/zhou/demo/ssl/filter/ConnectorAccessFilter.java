@@ -0,0 +1,90 @@
+package com.zhou.demo.ssl.filter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * @ClassName ConnectorAccessFilter
+ * @Author JackZhou
+ * @Desc  按请求到达的连接器限制可访问的路径
+ *
+ * HTTPS请求使用connector.https.allowed-paths，内部明文连接器的请求使用connector.internal.allowed-paths，
+ * 路径为Ant风格，不配置表示不限制。不允许的路径返回403。
+ * Tomcat不会规范化getRequestURI()，匹配使用解码并去掉;参数后的路径；原始URI中带;、编码的.或/、\或..路径段的请求
+ * 可能在匹配之后被解析到别的接口，直接返回400。
+ **/
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ConnectorAccessFilter extends OncePerRequestFilter {
+
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    private final String[] httpsAllowedPaths;
+    private final String[] internalAllowedPaths;
+
+    public ConnectorAccessFilter(@Value("${connector.https.allowed-paths:}") String[] httpsAllowedPaths,
+                                 @Value("${connector.internal.allowed-paths:}") String[] internalAllowedPaths) {
+        this.httpsAllowedPaths = httpsAllowedPaths;
+        this.internalAllowedPaths = internalAllowedPaths;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String[] allowedPaths = request.isSecure() ? httpsAllowedPaths : internalAllowedPaths;
+        if(!isNormalized(request.getRequestURI())){
+            log.debug("连接器{}拒绝未规范化的路径 {}", request.getLocalPort(), request.getRequestURI());
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        String path = urlPathHelper.getPathWithinApplication(request);
+        if(!isAllowed(allowedPaths, path)){
+            log.debug("连接器{}不允许访问 {}", request.getLocalPort(), path);
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static boolean isNormalized(String uri) {
+        String lower = uri.toLowerCase(Locale.ROOT);
+        if(lower.indexOf(';') >= 0 || lower.indexOf('\\') >= 0 || lower.contains("%2e") || lower.contains("%2f") || lower.contains("%5c")){
+            return false;
+        }
+        for (String segment : lower.split("/", -1)) {
+            if(".".equals(segment) || "..".equals(segment)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isAllowed(String[] allowedPaths, String path) {
+        if(allowedPaths.length == 0){
+            return true;
+        }
+        for (String allowedPath : allowedPaths) {
+            if(pathMatcher.match(allowedPath, path)){
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,99 @@
+package com.zhou.demo.ssl.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zhou.demo.ssl.utils.HandshakeStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName TlsSessionFilter
+ * @Author JackZhou
+ * @Desc  统计服务端的完整握手和session复用握手次数
+ *
+ * Tomcat不暴露握手事件，这里按 客户端地址:端口 识别连接：新连接上的session id之前见过即为复用session的握手，
+ * 没见过即为完整握手，带客户端证书的为双向认证。同一连接上的后续请求不计数。是否复用写入请求属性SESSION_REUSED_ATTR。
+ * TLS 1.3复用session(PSK)时session id会变化，Tomcat也不暴露SSLSession，无法判断是否复用：
+ * 这类握手计为unknown，不设置SESSION_REUSED_ATTR，访问日志中不输出tlsReused。
+ * 所以full/abbreviated计数只对TLS 1.2连接有效，TLS 1.3下服务端是否复用只能看客户端的统计(OkhttpMetricsListener)。
+ * 服务端拿不到握手的起止时间，握手耗时只有客户端的tls.handshake指标。
+ **/
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class TlsSessionFilter extends OncePerRequestFilter {
+
+    public static final String SESSION_REUSED_ATTR = TlsSessionFilter.class.getName() + ".SESSION_REUSED";
+
+    private static final String SSL_SESSION_ID_ATTR = "javax.servlet.request.ssl_session_id";
+    private static final String CLIENT_CERT_ATTR = "javax.servlet.request.X509Certificate";
+    private static final String PROTOCOL_VERSION_ATTR = "org.apache.tomcat.util.net.secure_protocol_version";
+
+    private final HandshakeStats stats = new HandshakeStats();
+
+    // 连接 -> 该连接握手时的session
+    private final Cache<String, ConnectionSession> connections;
+    // 见过的session id
+    private final Cache<String, Boolean> sessions;
+
+    private static class ConnectionSession {
+        final String sessionId;
+        // TLS 1.3为null
+        final Boolean resumed;
+
+        ConnectionSession(String sessionId, Boolean resumed) {
+            this.sessionId = sessionId;
+            this.resumed = resumed;
+        }
+    }
+
+    public TlsSessionFilter(@Value("${tls.session.cache-size:20480}") int sessionCacheSize,
+                            @Value("${tls.session.timeout-seconds:86400}") int sessionTimeoutSeconds) {
+        this.connections = Caffeine.newBuilder().maximumSize(100_000).expireAfterAccess(10, TimeUnit.MINUTES).build();
+        Caffeine<Object, Object> sessionsBuilder = Caffeine.newBuilder().expireAfterWrite(sessionTimeoutSeconds, TimeUnit.SECONDS);
+        if(sessionCacheSize > 0){
+            sessionsBuilder.maximumSize(sessionCacheSize);
+        }
+        this.sessions = sessionsBuilder.build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        Object sessionId = request.getAttribute(SSL_SESSION_ID_ATTR);
+        if(sessionId != null){
+            String connection = request.getRemoteAddr() + ':' + request.getRemotePort();
+            ConnectionSession connectionSession = connections.getIfPresent(connection);
+            if(connectionSession == null || !connectionSession.sessionId.equals(sessionId)){
+                boolean twoWay = request.getAttribute(CLIENT_CERT_ATTR) != null;
+                Boolean resumed = null;
+                if("TLSv1.3".equals(request.getAttribute(PROTOCOL_VERSION_ATTR))){
+                    stats.recordUnknown(twoWay);
+                }else {
+                    resumed = sessions.asMap().putIfAbsent((String) sessionId, Boolean.TRUE) != null;
+                    stats.record(resumed, twoWay);
+                }
+                connectionSession = new ConnectionSession((String) sessionId, resumed);
+                connections.put(connection, connectionSession);
+            }
+            if(connectionSession.resumed != null){
+                request.setAttribute(SESSION_REUSED_ATTR, connectionSession.resumed);
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    public HandshakeStats getStats() {
+        return stats;
+    }
+}
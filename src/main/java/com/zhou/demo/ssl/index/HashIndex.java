@@ -0,0 +1,76 @@
+package com.zhou.demo.ssl.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @ClassName HashIndex
+ * @Author JackZhou
+ * @Desc  等值索引，支持EQ和IN条件
+ **/
+public class HashIndex implements SecondaryIndex {
+
+    private final PersonProperty property;
+    private final ConcurrentHashMap<Object, Set<String>> postings = new ConcurrentHashMap<>();
+
+    public HashIndex(PersonProperty property) {
+        this.property = property;
+    }
+
+    @Override
+    public PersonProperty getProperty() {
+        return property;
+    }
+
+    @Override
+    public String getType() {
+        return "hash";
+    }
+
+    @Override
+    public void add(Object value, String id) {
+        if(value != null){
+            postings.compute(value, (key, ids) -> {
+                Set<String> result = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                result.add(id);
+                return result;
+            });
+        }
+    }
+
+    @Override
+    public void remove(Object value, String id) {
+        if(value != null){
+            // 集合为空时在compute中移除，和add互斥，不会丢掉并发加入的id
+            postings.computeIfPresent(value, (key, ids) -> ids.remove(id) && ids.isEmpty() ? null : ids);
+        }
+    }
+
+    @Override
+    public void clear() {
+        postings.clear();
+    }
+
+    @Override
+    public int distinctValues() {
+        return postings.size();
+    }
+
+    @Override
+    public Collection<Set<String>> lookup(List<QueryCondition> conditions) {
+        for (QueryCondition condition : conditions) {
+            if(condition.getOperator() == QueryCondition.Operator.EQ || condition.getOperator() == QueryCondition.Operator.IN){
+                List<Set<String>> result = new ArrayList<>(condition.getValues().size());
+                for (Object value : condition.getValues()) {
+                    result.add(postings.getOrDefault(value, Collections.emptySet()));
+                }
+                return result;
+            }
+        }
+        return null;
+    }
+}
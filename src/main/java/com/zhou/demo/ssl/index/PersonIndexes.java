@@ -0,0 +1,268 @@
+package com.zhou.demo.ssl.index;
+
+import com.cloud.demo.common.bean.Person;
+import com.zhou.demo.ssl.repository.PersonRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * @ClassName PersonIndexes
+ * @Author JackZhou
+ * @Desc  Person的二级索引和查询计划
+ *
+ * 索引的属性通过person.index.hash(等值)和person.index.sorted(等值+范围)配置，启动时从存储全量构建。
+ * 写存储和改索引在同一把按id分段的锁内完成，同一id的并发写不会让索引和存储不一致；
+ * 不同id的写互不影响。读索引不加锁，查询结果最终都用实际属性值校验，索引只负责缩小候选范围。
+ * 各索引的不同值个数见指标 person.index.values{index}。
+ **/
+@Component
+@Slf4j
+public class PersonIndexes {
+
+    private static final int STRIPES = 64;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${person.index.hash:}")
+    private String[] hashProperties;
+
+    @Value("${person.index.sorted:}")
+    private String[] sortedProperties;
+
+    @Value("${person.batch.max-size:1000}")
+    private int pageSize;
+
+    // 同一属性上hash索引在前，代价相同时优先使用
+    private final Map<String, List<SecondaryIndex>> indexes = new LinkedHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public PersonIndexes() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        for (String name : hashProperties) {
+            register(name, HashIndex::new);
+        }
+        for (String name : sortedProperties) {
+            register(name, SortedIndex::new);
+        }
+        rebuild();
+    }
+
+    private void register(String name, Function<PersonProperty, SecondaryIndex> factory) {
+        if(name.trim().isEmpty()){
+            return;
+        }
+        try {
+            SecondaryIndex index = factory.apply(PersonProperty.of(name.trim()));
+            indexes.computeIfAbsent(index.getProperty().getName(), key -> new ArrayList<>()).add(index);
+            Gauge.builder("person.index.values", index, SecondaryIndex::distinctValues)
+                    .tag("index", index.getName())
+                    .description("二级索引中不同属性值的个数")
+                    .register(meterRegistry);
+        } catch (IllegalArgumentException e) {
+            log.warn("忽略Person索引配置{}: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  清空后按id分页读取存储重建全部索引
+     **/
+    public void rebuild() {
+        if(indexes.isEmpty()){
+            return;
+        }
+        long start = System.currentTimeMillis();
+        forEachIndex(SecondaryIndex::clear);
+        long count = 0;
+        String cursor = null;
+        while (true) {
+            List<Person> page = personRepository.findPage(cursor, pageSize);
+            for (Person person : page) {
+                reindex(person.getId(), null, person);
+            }
+            count += page.size();
+            if(page.size() < pageSize){
+                break;
+            }
+            cursor = page.get(page.size() - 1).getId();
+        }
+        log.info("Person索引{}构建完成，{}条记录，耗时{}ms", indexNames(), count, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  writer写存储并返回旧值，索引按旧值和新值的差异更新
+     **/
+    public Person save(Person person, UnaryOperator<Person> writer) {
+        ReentrantLock lock = lockFor(person.getId());
+        lock.lock();
+        try {
+            Person old = writer.apply(person);
+            reindex(person.getId(), old, person);
+            return old;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Person delete(String id, Function<String, Person> deleter) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Person old = deleter.apply(id);
+            reindex(id, old, null);
+            return old;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  批量保存：按分段序号升序加锁，先读旧值再整批写入；批内重复id以最后一条为准
+     **/
+    public void saveAll(Collection<Person> persons, Function<Collection<String>, Map<String, Person>> reader, Consumer<Collection<Person>> writer) {
+        List<String> ids = new ArrayList<>(persons.size());
+        persons.forEach(person -> ids.add(person.getId()));
+        List<ReentrantLock> held = lockAll(ids);
+        try {
+            Map<String, Person> previous = indexes.isEmpty() ? Collections.emptyMap() : new HashMap<>(reader.apply(ids));
+            writer.accept(persons);
+            if(!indexes.isEmpty()){
+                for (Person person : persons) {
+                    reindex(person.getId(), previous.put(person.getId(), person), person);
+                }
+            }
+        } finally {
+            held.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  持有该id的锁执行action，锁可重入，action内可以再调用save/delete
+     **/
+    public <T> T withLock(String id, Supplier<T> action) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<Person> deleteAll(Collection<String> ids, Function<Collection<String>, List<Person>> deleter) {
+        List<ReentrantLock> held = lockAll(ids);
+        try {
+            List<Person> deleted = deleter.apply(ids);
+            for (Person person : deleted) {
+                reindex(person.getId(), person, null);
+            }
+            return deleted;
+        } finally {
+            held.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  为每个有索引的属性估算候选数量，选最少的一个；估算时超过当前最优值即停止计数
+     **/
+    public QueryPlan plan(List<QueryCondition> conditions) {
+        Map<String, List<QueryCondition>> byProperty = new LinkedHashMap<>();
+        for (QueryCondition condition : conditions) {
+            byProperty.computeIfAbsent(condition.getProperty().getName(), key -> new ArrayList<>()).add(condition);
+        }
+        QueryPlan best = QueryPlan.fullScan();
+        for (Map.Entry<String, List<QueryCondition>> entry : byProperty.entrySet()) {
+            for (SecondaryIndex index : indexes.getOrDefault(entry.getKey(), Collections.emptyList())) {
+                Collection<Set<String>> postings = index.lookup(entry.getValue());
+                if(postings == null){
+                    continue;
+                }
+                long estimate = QueryPlan.estimate(postings, best.getEstimate());
+                if(estimate < best.getEstimate()){
+                    best = new QueryPlan(index, postings, estimate);
+                }
+            }
+        }
+        return best;
+    }
+
+    public List<String> indexNames() {
+        List<String> names = new ArrayList<>();
+        forEachIndex(index -> names.add(index.getName()));
+        return names;
+    }
+
+    private void reindex(String id, Person old, Person current) {
+        for (List<SecondaryIndex> propertyIndexes : indexes.values()) {
+            PersonProperty property = propertyIndexes.get(0).getProperty();
+            Object oldValue = old == null ? null : property.read(old);
+            Object newValue = current == null ? null : property.read(current);
+            if(oldValue != null && oldValue.equals(newValue)){
+                continue;
+            }
+            for (SecondaryIndex index : propertyIndexes) {
+                index.remove(oldValue, id);
+                index.add(newValue, id);
+            }
+        }
+    }
+
+    private void forEachIndex(Consumer<SecondaryIndex> action) {
+        indexes.values().forEach(propertyIndexes -> propertyIndexes.forEach(action));
+    }
+
+    private ReentrantLock lockFor(String id) {
+        return locks[stripe(id)];
+    }
+
+    private List<ReentrantLock> lockAll(Collection<String> ids) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (String id : ids) {
+            stripes.add(stripe(id));
+        }
+        List<ReentrantLock> held = new ArrayList<>(stripes.size());
+        for (Integer stripe : stripes) {
+            locks[stripe].lock();
+            held.add(locks[stripe]);
+        }
+        return held;
+    }
+
+    private static int stripe(String id) {
+        return id == null ? 0 : (id.hashCode() & Integer.MAX_VALUE) % STRIPES;
+    }
+}
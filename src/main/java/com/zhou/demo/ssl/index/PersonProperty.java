@@ -0,0 +1,76 @@
+package com.zhou.demo.ssl.index;
+
+import com.cloud.demo.common.bean.Person;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.util.ClassUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @ClassName PersonProperty
+ * @Author JackZhou
+ * @Desc  Person属性的读取方法和类型，启动时通过PropertyDescriptor解析一次，查询时不再反射查找
+ **/
+public class PersonProperty {
+
+    private static final Map<String, PersonProperty> PROPERTIES = new ConcurrentHashMap<>();
+
+    private final String name;
+    // 基本类型转换成包装类型，读取方法返回的也是包装类型
+    private final Class<?> type;
+    private final Method readMethod;
+
+    private PersonProperty(String name, Class<?> type, Method readMethod) {
+        this.name = name;
+        this.type = ClassUtils.resolvePrimitiveIfNecessary(type);
+        this.readMethod = readMethod;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  Person没有该属性或不可读时抛出IllegalArgumentException
+     **/
+    public static PersonProperty of(String name){
+        PersonProperty property = PROPERTIES.get(name);
+        if(property != null){
+            return property;
+        }
+        PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(Person.class, name);
+        if(descriptor == null || descriptor.getReadMethod() == null || "class".equals(name)){
+            throw new IllegalArgumentException("Person没有可读属性 " + name);
+        }
+        return PROPERTIES.computeIfAbsent(name, key -> new PersonProperty(key, descriptor.getPropertyType(), descriptor.getReadMethod()));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public boolean isComparable(){
+        return Comparable.class.isAssignableFrom(type);
+    }
+
+    public Object read(Person person){
+        try {
+            return readMethod.invoke(person);
+        } catch (Exception e) {
+            throw new IllegalStateException("读取Person属性" + name + "失败", e);
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  查询参数转换成属性类型，转换后才能和索引中的值比较
+     **/
+    public Object convert(String value){
+        return DefaultConversionService.getSharedInstance().convert(value, type);
+    }
+}
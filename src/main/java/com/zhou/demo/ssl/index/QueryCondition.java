@@ -0,0 +1,122 @@
+package com.zhou.demo.ssl.index;
+
+import com.cloud.demo.common.bean.Person;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.core.convert.ConversionException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @ClassName QueryCondition
+ * @Author JackZhou
+ * @Desc  单个属性的查询条件，值已转换成属性类型
+ *
+ * 查询参数写法：name=Tom 等值，name.in=Tom,Jerry 多值，age.gte=18 / age.gt / age.lt / age.lte 范围。
+ **/
+@Getter
+@ToString
+public class QueryCondition {
+
+    public enum Operator {
+        EQ, IN, GT, GTE, LT, LTE;
+
+        public boolean isRange(){
+            return this == GT || this == GTE || this == LT || this == LTE;
+        }
+    }
+
+    private final PersonProperty property;
+    private final Operator operator;
+    // EQ/范围条件为单个值，IN为值列表
+    private final List<Object> values;
+
+    QueryCondition(PersonProperty property, Operator operator, List<Object> values) {
+        this.property = property;
+        this.operator = operator;
+        this.values = values;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  key为 属性名 或 属性名.操作符，范围条件要求属性类型实现Comparable；
+     *               操作符、属性名或值不合法时抛出IllegalArgumentException
+     **/
+    public static QueryCondition parse(String key, String value){
+        int dot = key.lastIndexOf('.');
+        Operator operator = Operator.EQ;
+        String propertyName = key;
+        if(dot > 0){
+            operator = operator(key.substring(dot + 1));
+            propertyName = key.substring(0, dot);
+        }
+        PersonProperty property = PersonProperty.of(propertyName);
+        if(operator.isRange() && !property.isComparable()){
+            throw new IllegalArgumentException("属性" + propertyName + "不支持范围查询");
+        }
+        List<Object> values;
+        if(operator == Operator.IN){
+            values = new ArrayList<>();
+            for (String item : value.split(",")) {
+                values.add(convert(property, key, item));
+            }
+        }else {
+            values = Collections.singletonList(convert(property, key, value));
+        }
+        return new QueryCondition(property, operator, values);
+    }
+
+    private static Operator operator(String name){
+        for (Operator operator : Operator.values()) {
+            if(operator.name().equalsIgnoreCase(name)){
+                return operator;
+            }
+        }
+        throw new IllegalArgumentException("不支持的操作符 " + name + "，可选 in/gt/gte/lt/lte");
+    }
+
+    /**
+     * 空值转换后为null，索引不接受null，这里直接拒绝
+     */
+    private static Object convert(PersonProperty property, String key, String value){
+        String trimmed = value == null ? "" : value.trim();
+        if(trimmed.isEmpty()){
+            throw new IllegalArgumentException("查询条件 " + key + " 的值不能为空");
+        }
+        try {
+            return property.convert(trimmed);
+        } catch (ConversionException e) {
+            throw new IllegalArgumentException("查询条件 " + key + " 的值 " + trimmed + " 不合法");
+        }
+    }
+
+    public Object getValue(){
+        return values.get(0);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  用实际的属性值判断，索引只用来缩小候选范围，最终结果都经过这里校验
+     **/
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public boolean test(Person person){
+        Object actual = property.read(person);
+        if(actual == null){
+            return false;
+        }
+        switch (operator) {
+            case EQ:
+                return actual.equals(getValue());
+            case IN:
+                return values.contains(actual);
+            default:
+                int cmp = ((Comparable) actual).compareTo(getValue());
+                return operator == Operator.GT ? cmp > 0
+                        : operator == Operator.GTE ? cmp >= 0
+                        : operator == Operator.LT ? cmp < 0
+                        : cmp <= 0;
+        }
+    }
+}
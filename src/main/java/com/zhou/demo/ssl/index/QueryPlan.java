@@ -0,0 +1,70 @@
+package com.zhou.demo.ssl.index;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * @ClassName QueryPlan
+ * @Author JackZhou
+ * @Desc  查询计划，index为空表示没有可用索引，需要全量扫描
+ **/
+public class QueryPlan {
+
+    private static final QueryPlan FULL_SCAN = new QueryPlan(null, Collections.emptyList(), Long.MAX_VALUE);
+
+    private final SecondaryIndex index;
+    private final Collection<Set<String>> postings;
+    private final long estimate;
+
+    QueryPlan(SecondaryIndex index, Collection<Set<String>> postings, long estimate) {
+        this.index = index;
+        this.postings = postings;
+        this.estimate = estimate;
+    }
+
+    static QueryPlan fullScan(){
+        return FULL_SCAN;
+    }
+
+    public boolean isFullScan(){
+        return index == null;
+    }
+
+    public String getName(){
+        return index == null ? "scan" : index.getName();
+    }
+
+    public long getEstimate() {
+        return estimate;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  候选id，按索引顺序惰性遍历并去重，取够limit条即可停止；候选结果仍需用全部条件校验
+     **/
+    public Stream<String> candidateIds(){
+        return postings.stream().flatMap(Set::stream).distinct();
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  统计候选id个数，超过cap就停止，避免宽范围的有序索引遍历全部值
+     **/
+    static long estimate(Collection<Set<String>> postings, long cap){
+        long count = 0;
+        for (Set<String> posting : postings) {
+            count += posting.size();
+            if(count > cap){
+                return count;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "(estimate=" + (isFullScan() ? "-" : String.valueOf(estimate)) + ")";
+    }
+}
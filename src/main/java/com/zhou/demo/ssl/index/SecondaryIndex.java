@@ -0,0 +1,40 @@
+package com.zhou.demo.ssl.index;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @ClassName SecondaryIndex
+ * @Author JackZhou
+ * @Desc  Person属性的二级索引，属性值 -> id集合，null值不进索引
+ **/
+public interface SecondaryIndex {
+
+    PersonProperty getProperty();
+
+    /**
+     * 索引类型，hash 或 sorted
+     */
+    String getType();
+
+    void add(Object value, String id);
+
+    void remove(Object value, String id);
+
+    void clear();
+
+    /**
+     * 不同属性值的个数
+     */
+    int distinctValues();
+
+    /**
+     * 返回满足同一属性上这些条件的id集合(视图，不复制)，索引不能处理这些条件时返回null
+     */
+    Collection<Set<String>> lookup(List<QueryCondition> conditions);
+
+    default String getName(){
+        return getType() + ":" + getProperty().getName();
+    }
+}
@@ -0,0 +1,113 @@
+package com.zhou.demo.ssl.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * @ClassName SortedIndex
+ * @Author JackZhou
+ * @Desc  有序索引，基于ConcurrentSkipListMap，支持EQ、IN和范围条件，范围结果按属性值升序
+ *
+ * 同一属性上的多个范围条件(如age.gte=18&age.lt=30)合并成一个subMap。
+ **/
+public class SortedIndex implements SecondaryIndex {
+
+    private final PersonProperty property;
+    private final ConcurrentSkipListMap<Object, Set<String>> postings = new ConcurrentSkipListMap<>();
+
+    public SortedIndex(PersonProperty property) {
+        if(!property.isComparable()){
+            throw new IllegalArgumentException("属性" + property.getName() + "没有实现Comparable，不能建有序索引");
+        }
+        this.property = property;
+    }
+
+    @Override
+    public PersonProperty getProperty() {
+        return property;
+    }
+
+    @Override
+    public String getType() {
+        return "sorted";
+    }
+
+    @Override
+    public void add(Object value, String id) {
+        if(value != null){
+            postings.compute(value, (key, ids) -> {
+                Set<String> result = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                result.add(id);
+                return result;
+            });
+        }
+    }
+
+    @Override
+    public void remove(Object value, String id) {
+        if(value != null){
+            postings.computeIfPresent(value, (key, ids) -> ids.remove(id) && ids.isEmpty() ? null : ids);
+        }
+    }
+
+    @Override
+    public void clear() {
+        postings.clear();
+    }
+
+    @Override
+    public int distinctValues() {
+        return postings.size();
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Collection<Set<String>> lookup(List<QueryCondition> conditions) {
+        Object lower = null;
+        boolean lowerInclusive = false;
+        Object upper = null;
+        boolean upperInclusive = false;
+        for (QueryCondition condition : conditions) {
+            QueryCondition.Operator operator = condition.getOperator();
+            if(operator == QueryCondition.Operator.EQ || operator == QueryCondition.Operator.IN){
+                List<Set<String>> result = new ArrayList<>(condition.getValues().size());
+                for (Object value : condition.getValues()) {
+                    result.add(postings.getOrDefault(value, Collections.emptySet()));
+                }
+                return result;
+            }
+            Comparable value = (Comparable) condition.getValue();
+            boolean inclusive = operator == QueryCondition.Operator.GTE || operator == QueryCondition.Operator.LTE;
+            if(operator == QueryCondition.Operator.GT || operator == QueryCondition.Operator.GTE){
+                int cmp = lower == null ? 1 : value.compareTo(lower);
+                if(cmp > 0 || (cmp == 0 && !inclusive)){
+                    lower = value;
+                    lowerInclusive = inclusive;
+                }
+            }else {
+                int cmp = upper == null ? -1 : value.compareTo(upper);
+                if(cmp < 0 || (cmp == 0 && !inclusive)){
+                    upper = value;
+                    upperInclusive = inclusive;
+                }
+            }
+        }
+        if(lower != null && upper != null && ((Comparable) lower).compareTo(upper) > 0){
+            return Collections.emptyList();
+        }
+        NavigableMap<Object, Set<String>> range = postings;
+        if(lower != null){
+            range = range.tailMap(lower, lowerInclusive);
+        }
+        if(upper != null){
+            range = range.headMap(upper, upperInclusive);
+        }
+        return range.values();
+    }
+}
@@ -0,0 +1,50 @@
+package com.zhou.demo.ssl.json;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * @ClassName OutputBufferPool
+ * @Author JackZhou
+ * @Desc  线程本地的序列化缓冲区，处理请求的Tomcat线程数固定，缓冲区数量也固定
+ *
+ * 用完后超过maxPooledBytes的缓冲区不放回(大的批量结果)，避免每个线程长期占着大数组。
+ **/
+public class OutputBufferPool {
+
+    private static final int INITIAL_SIZE = 1024;
+
+    private final ThreadLocal<Buffer> buffers = new ThreadLocal<>();
+    private final int maxPooledBytes;
+
+    public OutputBufferPool(int maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    public Buffer acquire() {
+        Buffer buffer = buffers.get();
+        if(buffer == null){
+            return new Buffer();
+        }
+        // 取出后置空，使用期间同一线程再次acquire(如序列化中嵌套序列化)会拿到新的缓冲区
+        buffers.remove();
+        return buffer;
+    }
+
+    public void release(Buffer buffer) {
+        if(buffer.capacity() <= maxPooledBytes){
+            buffer.reset();
+            buffers.set(buffer);
+        }
+    }
+
+    public static class Buffer extends ByteArrayOutputStream {
+
+        private Buffer() {
+            super(INITIAL_SIZE);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.zhou.demo.ssl.json;
+
+import com.cloud.demo.common.WebResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @ClassName WebResponseHttpMessageConverter
+ * @Author JackZhou
+ * @Desc  接口返回值WebResponse的序列化，排在Boot默认的Jackson converter之前，只处理写出
+ *
+ * 和默认的MappingJackson2HttpMessageConverter输出相同，区别是：
+ * 每种格式的ObjectWriter启动时创建一次并预先解析好WebResponse的序列化器，不再每个请求创建writer、解析泛型类型；
+ * 先序列化到线程复用的缓冲区，带Content-Length一次写出，不用chunked分块。
+ * 按Accept选择格式，注册了smile/cbor时可以返回二进制格式，不带Accept或接受任意类型时为第一个注册的格式(JSON)。
+ **/
+public class WebResponseHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+    public static final MediaType APPLICATION_CBOR = new MediaType("application", "cbor");
+
+    // key为不带参数的type/subtype
+    private final Map<MediaType, ObjectWriter> writers = new LinkedHashMap<>();
+    private final OutputBufferPool bufferPool;
+
+    public WebResponseHttpMessageConverter(OutputBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  注册一种输出格式，objectMapper的JsonFactory决定输出格式，先注册的优先
+     **/
+    public WebResponseHttpMessageConverter register(MediaType mediaType, ObjectMapper objectMapper) {
+        writers.put(new MediaType(mediaType.getType(), mediaType.getSubtype()), objectMapper.writerFor(WebResponse.class));
+        List<MediaType> mediaTypes = new ArrayList<>(getSupportedMediaTypes());
+        mediaTypes.add(mediaType);
+        setSupportedMediaTypes(mediaTypes);
+        return this;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return WebResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("WebResponseHttpMessageConverter只用于写出", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+        ObjectWriter writer = writer(contentType);
+        OutputBufferPool.Buffer buffer = bufferPool.acquire();
+        try {
+            writer.writeValue(buffer, value);
+            outputMessage.getHeaders().setContentLength(buffer.size());
+            buffer.writeTo(outputMessage.getBody());
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotWritableException("Could not write " + contentType + ": " + e.getOriginalMessage(), e);
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    private ObjectWriter writer(MediaType contentType) {
+        ObjectWriter writer = contentType == null ? null : writers.get(new MediaType(contentType.getType(), contentType.getSubtype()));
+        return writer != null ? writer : writers.values().iterator().next();
+    }
+}
@@ -0,0 +1,103 @@
+package com.zhou.demo.ssl.loadgen;
+
+import com.zhou.demo.ssl.utils.FileUtils;
+import com.zhou.demo.ssl.utils.JksClientCredentials;
+import com.zhou.demo.ssl.utils.OkhttpClientFactory;
+import com.zhou.demo.ssl.utils.PemClientCredentials;
+import com.zhou.demo.ssl.utils.PemReader;
+import com.zhou.demo.ssl.utils.TrustAllCerts;
+import com.zhou.demo.ssl.utils.TrustAllHostnameVerifier;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.internal.tls.OkHostnameVerifier;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName LoadClient
+ * @Author JackZhou
+ * @Desc  按压测参数创建OkHttpClient：证书来自PemClientCredentials/JksClientCredentials，
+ *        insecure时使用同一份客户端证书，但不校验服务端证书和主机名
+ **/
+class LoadClient {
+
+    private LoadClient() {
+    }
+
+    static OkHttpClient create(LoadOptions options) throws Exception {
+        // 空闲连接数不小于并发数，压测期间连接不会因为连接池满被关闭，握手次数只取决于keep-alive
+        OkhttpClientFactory.configure(OkhttpClientFactory.PoolConfig.builder()
+                .maxIdleConnections(options.getConcurrency())
+                .maxRequests(options.getConcurrency())
+                .maxRequestsPerHost(options.getConcurrency())
+                .build());
+        SSLSocketFactory socketFactory;
+        X509TrustManager trustManager;
+        if(options.isInsecure()){
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            trustManager = new TrustAllCerts();
+            sslContext.init(keyManagers(options), new TrustManager[]{trustManager}, null);
+            socketFactory = sslContext.getSocketFactory();
+        }else if("jks".equals(options.getAuth())){
+            try (FileInputStream clientJks = new FileInputStream(options.getClientJks())) {
+                JksClientCredentials.SSLParams sslParams = new JksClientCredentials(FileUtils.readFile(options.getCaCert()),
+                        clientJks, options.getJksPassword()).getSSLParams();
+                socketFactory = sslParams.sSLSocketFactory;
+                trustManager = sslParams.trustManager;
+            }
+        }else {
+            boolean twoWay = "pem".equals(options.getAuth());
+            PemClientCredentials.SSLParams sslParams = PemClientCredentials.fromFiles(Paths.get(options.getCaCert()),
+                    twoWay ? Paths.get(options.getClientKey()) : null, twoWay ? Paths.get(options.getClientCert()) : null).getSSLParams();
+            socketFactory = sslParams.sSLSocketFactory;
+            trustManager = sslParams.trustManager;
+        }
+        List<Protocol> protocols = "http1.1".equals(options.getProtocol()) ? Collections.singletonList(Protocol.HTTP_1_1) : null;
+        return OkhttpClientFactory.getClient(OkhttpClientFactory.ClientOptions.builder()
+                .sslSocketFactory(socketFactory)
+                .trustManager(trustManager)
+                .hostnameVerifier(options.isInsecure() ? TrustAllHostnameVerifier.INSTANCE : OkHostnameVerifier.INSTANCE)
+                .protocols(protocols)
+                .readTimeoutMillis(TimeUnit.SECONDS.toMillis(30))
+                .build());
+    }
+
+    private static KeyManager[] keyManagers(LoadOptions options) throws Exception {
+        char[] password;
+        KeyStore keyStore;
+        if("one-way".equals(options.getAuth())){
+            return null;
+        }else if("jks".equals(options.getAuth())){
+            password = options.getJksPassword().toCharArray();
+            keyStore = KeyStore.getInstance("JKS");
+            try (InputStream in = new FileInputStream(options.getClientJks())) {
+                keyStore.load(in, password);
+            }
+        }else {
+            password = new char[0];
+            List<X509Certificate> chain = PemReader.certificates(PemReader.readFile(Paths.get(options.getClientCert())));
+            PrivateKey privateKey = PemReader.privateKey(PemReader.readFile(Paths.get(options.getClientKey())));
+            keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            keyStore.load(null, null);
+            keyStore.setKeyEntry("private-key", privateKey, password, chain.toArray(new Certificate[0]));
+        }
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, password);
+        return keyManagerFactory.getKeyManagers();
+    }
+}
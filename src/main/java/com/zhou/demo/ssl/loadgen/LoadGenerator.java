@@ -0,0 +1,221 @@
+package com.zhou.demo.ssl.loadgen;
+
+import com.zhou.demo.ssl.utils.OkhttpClientFactory;
+import com.zhou.demo.ssl.utils.OkhttpMetricsListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Okio;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @ClassName LoadGenerator
+ * @Author JackZhou
+ * @Desc  对PersonController接口的双向认证压测工具，参数见LoadOptions.USAGE
+ *
+ * 开环模式(rate>0)：第n个请求的计划发送时间为 开始时间 + n/rate，发送线程依次领取序号，到点发送并同步等待响应。
+ * 服务端变慢时线程都在等待，后面的请求会晚于计划发出，这段排队时间也算进响应时间，
+ * 不会因为压测端自己慢下来而低估延迟(coordinated omission)。闭环模式(rate=0)每个线程收到响应后立即发下一个，
+ * 只适合测最大吞吐，延迟分位没有参考意义。
+ * 压测前按mix的需要批量写入 load-0 ~ load-(ids-1)。服务端默认按调用方限流，测容量时服务端需要 --rate-limit.enabled=false，
+ * 否则结果中会出现429。
+ *
+ * 运行：mvn -Ploadgen compile exec:java -Dexec.args="--rate=500 --duration=30 --insecure=true"
+ **/
+public class LoadGenerator {
+
+    private static final int PRELOAD_BATCH = 500;
+
+    private final LoadOptions options;
+    private final OkHttpClient client;
+    private final LoadOperation.Mix mix;
+    // 从计划发送时间算起，单位微秒
+    private final Recorder responseTime = new Recorder(3);
+    // 从实际发送算起，单位微秒
+    private final Recorder serviceTime = new Recorder(3);
+    private final ConcurrentMap<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final LongAdder intervalErrors = new LongAdder();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong unsent = new AtomicLong();
+    private final LongAccumulator maxStartLag = new LongAccumulator(Math::max, 0);
+
+    public LoadGenerator(LoadOptions options) throws Exception {
+        this.options = options;
+        this.client = LoadClient.create(options);
+        this.mix = new LoadOperation.Mix(options.getMix());
+    }
+
+    public static void main(String[] args) throws Exception {
+        if(args.length > 0 && ("-h".equals(args[0]) || "--help".equals(args[0]))){
+            System.out.println(LoadOptions.USAGE);
+            return;
+        }
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadOptions.USAGE);
+            return;
+        }
+        LoadReport report = new LoadGenerator(options).run();
+        report.print(System.out);
+        if(options.getHgrm() != null){
+            report.writeHgrm(options.getHgrm());
+            System.out.println("响应时间分布已写入 " + options.getHgrm());
+        }
+    }
+
+    public LoadReport run() throws Exception {
+        if(options.isPreload() && mix.readsExisting()){
+            preload();
+        }
+        long fullBefore = OkhttpMetricsListener.CLIENT_STATS.getFull();
+        long abbreviatedBefore = OkhttpMetricsListener.CLIENT_STATS.getAbbreviated();
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(options.getConcurrency(), runnable -> {
+            Thread thread = new Thread(runnable, "load-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+        long measureStart = start + TimeUnit.SECONDS.toNanos(options.getWarmupSeconds());
+        long end = measureStart + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+        for (int i = 0; i < options.getConcurrency(); i++) {
+            workers.execute(() -> work(start, measureStart, end));
+        }
+        workers.shutdown();
+
+        Histogram responseTotal = new Histogram(3);
+        Histogram serviceTotal = new Histogram(3);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(Math.max(options.getReportIntervalSeconds(), 1));
+        long nextReport = measureStart + intervalNanos;
+        while (!workers.awaitTermination(Math.max(nextReport - System.nanoTime(), 0), TimeUnit.NANOSECONDS)) {
+            if(System.nanoTime() < nextReport){
+                continue;
+            }
+            Histogram interval = drainInterval(responseTotal, serviceTotal);
+            if(options.getReportIntervalSeconds() > 0){
+                System.out.printf("[%4ds] %8.1f req/s  p50=%.2fms  p99=%.2fms  max=%.2fms  errors=%d%n",
+                        TimeUnit.NANOSECONDS.toSeconds(nextReport - measureStart), interval.getTotalCount() / (intervalNanos / 1e9),
+                        interval.getValueAtPercentile(50) / 1000.0, interval.getValueAtPercentile(99) / 1000.0,
+                        interval.getMaxValue() / 1000.0, intervalErrors.sumThenReset());
+            }
+            nextReport += intervalNanos;
+        }
+        drainInterval(responseTotal, serviceTotal);
+
+        Map<String, Long> outcomeCounts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> outcomeCounts.put(outcome, count.sum()));
+        return new LoadReport(options, end - measureStart, responseTotal, serviceTotal, outcomeCounts, unsent.get(), maxStartLag.get(),
+                OkhttpMetricsListener.CLIENT_STATS.getFull() - fullBefore, OkhttpMetricsListener.CLIENT_STATS.getAbbreviated() - abbreviatedBefore,
+                OkhttpClientFactory.connectionPool().connectionCount());
+    }
+
+    private Histogram drainInterval(Histogram responseTotal, Histogram serviceTotal) {
+        Histogram interval = responseTime.getIntervalHistogram();
+        responseTotal.add(interval);
+        serviceTotal.add(serviceTime.getIntervalHistogram());
+        return interval;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  发送线程：开环时领取序号按计划时间发送，闭环时连续发送；计划时间在预热期内的请求不计入结果
+     **/
+    private void work(long start, long measureStart, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double intervalNanos = options.isOpenLoop() ? 1e9 / options.getRate() : 0;
+        while (true) {
+            long intended;
+            if(options.isOpenLoop()){
+                intended = start + (long) (sequence.getAndIncrement() * intervalNanos);
+                if(intended >= end){
+                    return;
+                }
+                long now;
+                while ((now = System.nanoTime()) < intended) {
+                    LockSupport.parkNanos(intended - now);
+                }
+                if(now >= end){
+                    // 到结束时间还没发出的计划请求，说明压测端或服务端已经跟不上目标速率
+                    unsent.incrementAndGet();
+                    continue;
+                }
+            }else {
+                intended = System.nanoTime();
+                if(intended >= end){
+                    return;
+                }
+            }
+            long sent = System.nanoTime();
+            String outcome = execute(mix.next(random), random);
+            long done = System.nanoTime();
+            if(intended < measureStart){
+                continue;
+            }
+            responseTime.recordValue(Math.max(TimeUnit.NANOSECONDS.toMicros(done - intended), 1));
+            serviceTime.recordValue(Math.max(TimeUnit.NANOSECONDS.toMicros(done - sent), 1));
+            maxStartLag.accumulate(sent - intended);
+            outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+            if(!outcome.startsWith("2")){
+                intervalErrors.increment();
+            }
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  返回状态码，没有收到响应时返回异常类名；响应体读完丢弃，连接可以复用
+     **/
+    private String execute(LoadOperation operation, ThreadLocalRandom random) {
+        Request.Builder request = operation.request(options.getUrl(), options.getIds(), random);
+        if(!options.isKeepAlive()){
+            request.header("Connection", "close");
+        }
+        try (Response response = client.newCall(request.build()).execute()) {
+            response.body().source().readAll(Okio.blackhole());
+            return String.valueOf(response.code());
+        } catch (IOException e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+
+    private void preload() throws IOException {
+        long start = System.currentTimeMillis();
+        for (int from = 0; from < options.getIds(); from += PRELOAD_BATCH) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = from; i < Math.min(from + PRELOAD_BATCH, options.getIds()); i++) {
+                body.append(i == from ? "" : ",").append(LoadOperation.person(i));
+            }
+            Request request = new Request.Builder()
+                    .url(options.getUrl() + LoadOperation.PERSON_PATH + "/save/batch")
+                    .post(RequestBody.create(LoadOperation.JSON, body.append(']').toString()))
+                    .build();
+            try (Response response = client.newCall(request).execute()) {
+                if(!response.isSuccessful()){
+                    throw new IOException("预写入失败 HTTP " + response.code() + " " + response.body().string());
+                }
+            }
+        }
+        System.out.printf("已预写入%d条，耗时%dms%n", options.getIds(), System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,131 @@
+package com.zhou.demo.ssl.loadgen;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @ClassName LoadOperation
+ * @Author JackZhou
+ * @Desc  压测使用的PersonController接口，id在 load-0 ~ load-(ids-1) 中均匀随机
+ **/
+enum LoadOperation {
+
+    GET("get") {
+        @Override
+        Request.Builder request(String baseUrl, int ids, ThreadLocalRandom random) {
+            return new Request.Builder().url(baseUrl + PERSON_PATH + "/" + id(ids, random)).get();
+        }
+    },
+    SAVE("save") {
+        @Override
+        Request.Builder request(String baseUrl, int ids, ThreadLocalRandom random) {
+            return new Request.Builder().url(baseUrl + PERSON_PATH + "/save").post(RequestBody.create(JSON, person(random.nextInt(ids))));
+        }
+    },
+    QUERY("query") {
+        @Override
+        Request.Builder request(String baseUrl, int ids, ThreadLocalRandom random) {
+            int age = random.nextInt(AGES);
+            return new Request.Builder().url(baseUrl + PERSON_PATH + "/query?limit=20&age.gte=" + age + "&age.lt=" + (age + 5)).get();
+        }
+    },
+    GET_BATCH("get-batch") {
+        @Override
+        Request.Builder request(String baseUrl, int ids, ThreadLocalRandom random) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                body.append(i == 0 ? "\"" : ",\"").append(id(ids, random)).append('"');
+            }
+            return new Request.Builder().url(baseUrl + PERSON_PATH + "/get/batch").post(RequestBody.create(JSON, body.append(']').toString()));
+        }
+    };
+
+    static final String PERSON_PATH = "/demo/bootswagger/person";
+    static final MediaType JSON = MediaType.parse("application/json");
+    private static final int AGES = 90;
+    private static final int BATCH_SIZE = 10;
+
+    private final String name;
+
+    LoadOperation(String name) {
+        this.name = name;
+    }
+
+    abstract Request.Builder request(String baseUrl, int ids, ThreadLocalRandom random);
+
+    String getName() {
+        return name;
+    }
+
+    static String id(int ids, ThreadLocalRandom random) {
+        return "load-" + random.nextInt(ids);
+    }
+
+    static String person(int index) {
+        return "{\"id\":\"load-" + index + "\",\"name\":\"name-" + index % 100 + "\",\"age\":" + index % AGES + "}";
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  按权重随机选择操作，mix格式 get:80,save:10,query:10
+     **/
+    static class Mix {
+
+        private final LoadOperation[] operations;
+        private final int[] cumulative;
+
+        Mix(String mix) {
+            List<LoadOperation> parsedOperations = new ArrayList<>();
+            List<Integer> parsedWeights = new ArrayList<>();
+            int total = 0;
+            for (String item : mix.split(",")) {
+                String[] parts = item.trim().split(":");
+                int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+                if(weight <= 0){
+                    continue;
+                }
+                parsedOperations.add(of(parts[0].trim()));
+                total += weight;
+                parsedWeights.add(total);
+            }
+            if(parsedOperations.isEmpty()){
+                throw new IllegalArgumentException("mix中至少需要一个权重大于0的操作: " + mix);
+            }
+            operations = parsedOperations.toArray(new LoadOperation[0]);
+            cumulative = parsedWeights.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        LoadOperation next(ThreadLocalRandom random) {
+            int value = random.nextInt(cumulative[cumulative.length - 1]);
+            for (int i = 0; i < cumulative.length; i++) {
+                if(value < cumulative[i]){
+                    return operations[i];
+                }
+            }
+            return operations[operations.length - 1];
+        }
+
+        boolean readsExisting() {
+            for (LoadOperation operation : operations) {
+                if(operation == GET || operation == GET_BATCH || operation == QUERY){
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static LoadOperation of(String name) {
+            for (LoadOperation operation : values()) {
+                if(operation.name.equals(name)){
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("未知操作 " + name + "，可选 get / save / query / get-batch");
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.zhou.demo.ssl.loadgen;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * @ClassName LoadOptions
+ * @Author JackZhou
+ * @Desc  压测参数，命令行格式 --name=value，未指定的使用默认值
+ **/
+@Getter
+@ToString
+public class LoadOptions {
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "参数(--name=value):",
+            "  --url=https://127.0.0.1:11001      服务地址",
+            "  --auth=pem                         one-way 单向 | pem 双向PEM | jks 双向JKS",
+            "  --ca-cert / --client-key / --client-cert / --client-jks / --jks-password   证书文件，默认src/main/resources/httpsClient下的demo证书",
+            "  --insecure=false                   不校验服务端证书和主机名(demo证书已过期且CN不是127.0.0.1时需要)",
+            "  --rate=200                         每秒请求数，按计划时间开环发送；0为闭环，每个线程收到响应后立即发下一个",
+            "  --concurrency=64                   发送线程数，即最大并发请求数",
+            "  --duration=30 --warmup=5           压测和预热时长(秒)，预热期间的结果不计入",
+            "  --mix=get:80,save:10,query:10      操作比例，可选 get / save / query / get-batch",
+            "  --ids=1000 --preload=true          id范围load-0 ~ load-(ids-1)，开始前批量写入这些id",
+            "  --protocol=auto                    auto 按ALPN协商 | http1.1",
+            "  --keep-alive=true                  false时每个请求带Connection: close，每次都重新建连握手",
+            "  --report-interval=1                每隔几秒打印一次区间统计，0不打印",
+            "  --hgrm=                            把响应时间分布写入该文件(HdrHistogram .hgrm格式，单位ms)");
+
+    private String url = "https://127.0.0.1:11001";
+    private String auth = "pem";
+    private String caCert = "src/main/resources/httpsClient/ca.crt";
+    private String clientKey = "src/main/resources/httpsClient/target_pkcs8_privatekey.key";
+    private String clientCert = "src/main/resources/httpsClient/client.crt";
+    private String clientJks = "src/main/resources/httpsClient/client.jks";
+    private String jksPassword = "123456";
+    private boolean insecure = false;
+    private double rate = 200;
+    private int concurrency = 64;
+    private int durationSeconds = 30;
+    private int warmupSeconds = 5;
+    private String mix = "get:80,save:10,query:10";
+    private int ids = 1000;
+    private boolean preload = true;
+    private String protocol = "auto";
+    private boolean keepAlive = true;
+    private int reportIntervalSeconds = 1;
+    private String hgrm;
+
+    /**
+     * @Author JackZhou
+     * @Description  解析命令行参数，参数名错误或值不合法时抛出IllegalArgumentException
+     **/
+    public static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if(!arg.startsWith("--") || eq < 0){
+                throw new IllegalArgumentException("参数格式应为--name=value: " + arg);
+            }
+            options.set(arg.substring(2, eq), arg.substring(eq + 1).trim());
+        }
+        options.validate();
+        return options;
+    }
+
+    private void set(String name, String value) {
+        switch (name) {
+            case "url": url = value.replaceAll("/+$", ""); break;
+            case "auth": auth = value; break;
+            case "ca-cert": caCert = value; break;
+            case "client-key": clientKey = value; break;
+            case "client-cert": clientCert = value; break;
+            case "client-jks": clientJks = value; break;
+            case "jks-password": jksPassword = value; break;
+            case "insecure": insecure = Boolean.parseBoolean(value); break;
+            case "rate": rate = Double.parseDouble(value); break;
+            case "concurrency": concurrency = Integer.parseInt(value); break;
+            case "duration": durationSeconds = Integer.parseInt(value); break;
+            case "warmup": warmupSeconds = Integer.parseInt(value); break;
+            case "mix": mix = value; break;
+            case "ids": ids = Integer.parseInt(value); break;
+            case "preload": preload = Boolean.parseBoolean(value); break;
+            case "protocol": protocol = value; break;
+            case "keep-alive": keepAlive = Boolean.parseBoolean(value); break;
+            case "report-interval": reportIntervalSeconds = Integer.parseInt(value); break;
+            case "hgrm": hgrm = value.isEmpty() ? null : value; break;
+            default: throw new IllegalArgumentException("未知参数 --" + name);
+        }
+    }
+
+    private void validate() {
+        if(!"one-way".equals(auth) && !"pem".equals(auth) && !"jks".equals(auth)){
+            throw new IllegalArgumentException("auth只能是one-way、pem或jks: " + auth);
+        }
+        if(!"auto".equals(protocol) && !"http1.1".equals(protocol)){
+            throw new IllegalArgumentException("protocol只能是auto或http1.1: " + protocol);
+        }
+        if(rate < 0 || concurrency < 1 || durationSeconds < 1 || warmupSeconds < 0 || ids < 1){
+            throw new IllegalArgumentException("rate、warmup不能为负数，concurrency、duration、ids至少为1");
+        }
+    }
+
+    public boolean isOpenLoop() {
+        return rate > 0;
+    }
+}
@@ -0,0 +1,107 @@
+package com.zhou.demo.ssl.loadgen;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName LoadReport
+ * @Author JackZhou
+ * @Desc  压测结果，直方图的值单位为微秒
+ *
+ * 响应时间从计划发送时间算起，发送线程都忙导致请求晚发时，晚发的时间也计入(修正coordinated omission)；
+ * 服务时间从实际发送算起，只反映服务端和网络的耗时。闭环模式下两者相同。
+ **/
+class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final LoadOptions options;
+    private final long measuredNanos;
+    private final Histogram responseTime;
+    private final Histogram serviceTime;
+    private final Map<String, Long> outcomes;
+    private final long unsent;
+    private final long maxStartLagNanos;
+    private final long fullHandshakes;
+    private final long abbreviatedHandshakes;
+    private final int connections;
+
+    LoadReport(LoadOptions options, long measuredNanos, Histogram responseTime, Histogram serviceTime, Map<String, Long> outcomes,
+               long unsent, long maxStartLagNanos, long fullHandshakes, long abbreviatedHandshakes, int connections) {
+        this.options = options;
+        this.measuredNanos = measuredNanos;
+        this.responseTime = responseTime;
+        this.serviceTime = serviceTime;
+        this.outcomes = outcomes;
+        this.unsent = unsent;
+        this.maxStartLagNanos = maxStartLagNanos;
+        this.fullHandshakes = fullHandshakes;
+        this.abbreviatedHandshakes = abbreviatedHandshakes;
+        this.connections = connections;
+    }
+
+    long getRequests() {
+        return responseTime.getTotalCount();
+    }
+
+    long getSucceeded() {
+        long succeeded = 0;
+        for (Map.Entry<String, Long> entry : outcomes.entrySet()) {
+            if(entry.getKey().startsWith("2")){
+                succeeded += entry.getValue();
+            }
+        }
+        return succeeded;
+    }
+
+    double getThroughput() {
+        return getRequests() / (measuredNanos / 1e9);
+    }
+
+    void print(PrintStream out) {
+        out.println();
+        out.println("==== 压测结果 ====");
+        out.printf("目标 %s auth=%s%s %s concurrency=%d duration=%ds protocol=%s keep-alive=%s mix=%s%n",
+                options.getUrl(), options.getAuth(), options.isInsecure() ? "(insecure)" : "",
+                options.isOpenLoop() ? "rate=" + options.getRate() + "/s(开环)" : "闭环",
+                options.getConcurrency(), options.getDurationSeconds(), options.getProtocol(), options.isKeepAlive(), options.getMix());
+        out.printf("请求 %d，成功(2xx) %d，吞吐 %.1f req/s%n", getRequests(), getSucceeded(), getThroughput());
+        out.println("结果 " + outcomes);
+        if(options.isOpenLoop()){
+            out.printf("计划内未发出 %d，实际发送比计划最多晚 %.1fms%n", unsent, maxStartLagNanos / 1e6);
+        }
+        out.printf("握手 全量%d 复用session%d，连接池中的连接 %d%n", fullHandshakes, abbreviatedHandshakes, connections);
+        out.printf("%-14s", "延迟(ms)");
+        for (double percentile : PERCENTILES) {
+            out.printf("%10s", "p" + (percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile)));
+        }
+        out.printf("%10s%10s%n", "max", "mean");
+        printRow(out, options.isOpenLoop() ? "响应时间(修正)" : "响应时间", responseTime);
+        if(options.isOpenLoop()){
+            printRow(out, "服务时间", serviceTime);
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  响应时间分布写入文件，可用HdrHistogram的plotter画图
+     **/
+    void writeHgrm(String file) throws IOException {
+        try (PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8")) {
+            responseTime.outputPercentileDistribution(out, (double) TimeUnit.MILLISECONDS.toMicros(1));
+        }
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram histogram) {
+        out.printf("%-12s", name);
+        for (double percentile : PERCENTILES) {
+            out.printf("%10.2f", histogram.getValueAtPercentile(percentile) / 1000.0);
+        }
+        out.printf("%10.2f%10.2f%n", histogram.getMaxValue() / 1000.0, histogram.getMean() / 1000.0);
+    }
+}
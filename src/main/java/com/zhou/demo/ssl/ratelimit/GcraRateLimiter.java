@@ -0,0 +1,65 @@
+package com.zhou.demo.ssl.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ClassName GcraRateLimiter
+ * @Author JackZhou
+ * @Desc  无锁令牌桶，GCRA(通用信元速率算法)实现
+ *
+ * 只保存一个“理论到达时间”TAT：每放行一个请求TAT前进一个发放间隔，TAT超前当前时间超过突发容量时拒绝。
+ * 效果与容量为burst、每秒补充ratePerSecond个令牌的令牌桶相同，但只需要一次CAS，没有定时补充线程。
+ **/
+public class GcraRateLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    public GcraRateLimiter(double ratePerSecond, int burst) {
+        if(ratePerSecond <= 0 || burst < 1){
+            throw new IllegalArgumentException("ratePerSecond必须大于0，burst不能小于1");
+        }
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        this.toleranceNanos = emissionIntervalNanos * burst;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  尝试取一个令牌，不阻塞
+     **/
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    boolean tryAcquire(long now) {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long start = tat == Long.MIN_VALUE || tat - now < 0 ? now : tat;
+            long next = start + emissionIntervalNanos;
+            if(next - now > toleranceNanos){
+                return false;
+            }
+            if(theoreticalArrival.compareAndSet(tat, next)){
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  距离下一个令牌可用还需要等待的纳秒数，0表示现在可用
+     **/
+    public long nanosUntilAvailable() {
+        return nanosUntilAvailable(System.nanoTime());
+    }
+
+    long nanosUntilAvailable(long now) {
+        long tat = theoreticalArrival.get();
+        if(tat == Long.MIN_VALUE){
+            return 0;
+        }
+        return Math.max(0, tat + emissionIntervalNanos - toleranceNanos - now);
+    }
+}
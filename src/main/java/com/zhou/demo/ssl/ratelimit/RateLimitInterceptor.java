@@ -0,0 +1,171 @@
+package com.zhou.demo.ssl.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.zhou.demo.ssl.bean.ClientIdentity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName RateLimitInterceptor
+ * @Author JackZhou
+ * @Desc  按(接口, 调用方)限流和限制并发，超出时直接返回429
+ *
+ * 调用方为客户端证书的CN，没有客户端证书时(内部明文连接器)为客户端IP。
+ * 每个桶包含一个GcraRateLimiter和一个Semaphore，都不阻塞请求线程；异步请求在异步处理完成后才释放并发许可。
+ * 指标：rate.limit.requests{endpoint, caller, result=allowed|rate_limited|concurrency_limited}，
+ * rate.limit.in.flight{endpoint, caller}，桶被淘汰时指标一起删除。
+ **/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class RateLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT_ATTR = RateLimitInterceptor.class.getName() + ".PERMIT";
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final Cache<String, Bucket> buckets;
+
+    private static class Endpoint {
+        final String name;
+        final RateLimitProperties.Policy policy;
+
+        Endpoint(String name, RateLimitProperties.Policy policy) {
+            this.name = name;
+            this.policy = policy;
+        }
+    }
+
+    private class Bucket {
+        final GcraRateLimiter limiter;
+        final Semaphore semaphore;
+        final int maxConcurrent;
+        final Counter allowed;
+        final Counter rateLimited;
+        final Counter concurrencyLimited;
+        final List<Meter> meters;
+
+        Bucket(Endpoint endpoint, String caller) {
+            RateLimitProperties.Policy policy = endpoint.policy;
+            this.limiter = policy.getRatePerSecond() > 0 ? new GcraRateLimiter(policy.getRatePerSecond(), policy.getBurst()) : null;
+            this.maxConcurrent = policy.getMaxConcurrent();
+            this.semaphore = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+            this.allowed = counter(endpoint.name, caller, "allowed");
+            this.rateLimited = counter(endpoint.name, caller, "rate_limited");
+            this.concurrencyLimited = counter(endpoint.name, caller, "concurrency_limited");
+            Gauge inFlight = Gauge.builder("rate.limit.in.flight", this, b -> b.semaphore == null ? 0 : b.maxConcurrent - b.semaphore.availablePermits())
+                    .tags("endpoint", endpoint.name, "caller", caller)
+                    .register(meterRegistry);
+            this.meters = Arrays.asList(allowed, rateLimited, concurrencyLimited, inFlight);
+        }
+    }
+
+    public RateLimitInterceptor(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxBuckets())
+                .expireAfterAccess(properties.getBucketIdleSeconds(), TimeUnit.SECONDS)
+                // removalListener在公共线程池异步执行，bucket被淘汰后立即重建时会拿到仍注册着的同一组meter，
+                // 随后才执行的remove会把新bucket的指标一起删掉；CacheWriter.delete和移除在同一个key的原子操作中执行
+                .writer(new CacheWriter<String, Bucket>() {
+                    @Override
+                    public void write(String key, Bucket bucket) {
+                    }
+
+                    @Override
+                    public void delete(String key, Bucket bucket, RemovalCause cause) {
+                        if(bucket != null){
+                            bucket.meters.forEach(meterRegistry::remove);
+                        }
+                    }
+                })
+                .build();
+    }
+
+    public RateLimitProperties getProperties() {
+        return properties;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 异步请求再次分派时已经持有许可
+        if(!(handler instanceof HandlerMethod) || request.getAttribute(PERMIT_ATTR) != null){
+            return true;
+        }
+        Endpoint endpoint = endpoints.computeIfAbsent(((HandlerMethod) handler).getMethod(), this::endpoint);
+        String caller = caller(request);
+        Bucket bucket = buckets.get(endpoint.name + '|' + caller, key -> new Bucket(endpoint, caller));
+        if(bucket.limiter != null && !bucket.limiter.tryAcquire()){
+            bucket.rateLimited.increment();
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(bucket.limiter.nanosUntilAvailable() + TimeUnit.SECONDS.toNanos(1) - 1));
+            response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+            response.setStatus(TOO_MANY_REQUESTS);
+            return false;
+        }
+        if(bucket.semaphore != null && !bucket.semaphore.tryAcquire()){
+            bucket.concurrencyLimited.increment();
+            response.setStatus(TOO_MANY_REQUESTS);
+            return false;
+        }
+        bucket.allowed.increment();
+        request.setAttribute(PERMIT_ATTR, bucket);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object bucket = request.getAttribute(PERMIT_ATTR);
+        if(bucket != null){
+            request.removeAttribute(PERMIT_ATTR);
+            Semaphore semaphore = ((Bucket) bucket).semaphore;
+            if(semaphore != null){
+                semaphore.release();
+            }
+        }
+    }
+
+    private Endpoint endpoint(Method method) {
+        String name = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        RateLimitProperties.Policy policy = properties.getEndpoints().get(name);
+        return new Endpoint(name, policy == null ? properties.getDefaults() : policy);
+    }
+
+    private static String caller(HttpServletRequest request) {
+        ClientIdentity identity = (ClientIdentity) request.getAttribute(ClientIdentity.REQUEST_ATTR);
+        if(identity != null && identity.getCommonName() != null){
+            return identity.getCommonName();
+        }
+        return request.getRemoteAddr();
+    }
+
+    private Counter counter(String endpoint, String caller, String result) {
+        return Counter.builder("rate.limit.requests")
+                .tags("endpoint", endpoint, "caller", caller, "result", result)
+                .register(meterRegistry);
+    }
+}
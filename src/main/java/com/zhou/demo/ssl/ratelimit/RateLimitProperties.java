@@ -0,0 +1,41 @@
+package com.zhou.demo.ssl.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @ClassName RateLimitProperties
+ * @Author JackZhou
+ * @Desc  按调用方限流和并发隔离的配置，endpoints按 Controller类名.方法名 配置，未配置的接口使用defaults
+ **/
+@Data
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // 限流生效的路径
+    private String[] pathPatterns = {"/demo/**"};
+
+    // 同时保留的桶数量，长时间不访问的桶会被淘汰
+    private int maxBuckets = 10000;
+
+    private long bucketIdleSeconds = 600;
+
+    private Policy defaults = new Policy();
+
+    private Map<String, Policy> endpoints = new HashMap<>();
+
+    @Data
+    public static class Policy {
+        // 每秒请求数，<=0不限流
+        private double ratePerSecond = 200;
+        // 允许的突发请求数
+        private int burst = 50;
+        // 同一调用方的最大并发请求数，<=0不限制
+        private int maxConcurrent = 32;
+    }
+}
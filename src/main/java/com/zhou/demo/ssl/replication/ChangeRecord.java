@@ -0,0 +1,31 @@
+package com.zhou.demo.ssl.replication;
+
+import com.cloud.demo.common.bean.Person;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @ClassName ChangeRecord
+ * @Author JackZhou
+ * @Desc  一条Person变更，person为空表示删除。version和origin一起决定同一id的变更先后，见ReplicationVersions
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeRecord {
+
+    private String id;
+
+    private Person person;
+
+    private long version;
+
+    private String origin;
+
+    @JsonIgnore
+    public boolean isDelete() {
+        return person == null;
+    }
+}
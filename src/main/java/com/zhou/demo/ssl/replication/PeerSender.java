@@ -0,0 +1,193 @@
+package com.zhou.demo.ssl.replication;
+
+import com.zhou.demo.ssl.utils.MpscRingBuffer;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @ClassName PeerSender
+ * @Author JackZhou
+ * @Desc  向一个peer发送变更的后台线程
+ *
+ * 写线程只把变更放进该peer的环形队列，发送线程凑批后gzip压缩POST到peer。连接失败或5xx时保留这一批按退避间隔重试，
+ * 成功后才发下一批，同一peer收到的变更和本节点写入的顺序一致。413时对半拆分重发，单条仍然过大或其他4xx时丢弃。
+ * peer长时间不可用时队列满后丢弃，丢弃的变更需要该peer重启后从快照恢复。指标 replication.records{peer, result=sent|dropped}、replication.batch.bytes{peer}
+ **/
+@Slf4j
+class PeerSender {
+
+    static final String CHANGES_PATH = "/internal/replication/changes";
+    static final String ORIGIN_HEADER = "X-Replication-Origin";
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private static final int HTTP_PAYLOAD_TOO_LARGE = 413;
+
+    private final String peer;
+    private final String url;
+    private final ReplicationProperties properties;
+    private final ReplicationCodec codec;
+    private final OkHttpClient client;
+    private final MpscRingBuffer<ChangeRecord> buffer;
+    private final List<ChangeRecord> batch;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final DistributionSummary batchBytes;
+    private volatile boolean running = true;
+    private boolean failing;
+    private Thread thread;
+
+    PeerSender(String peer, ReplicationProperties properties, ReplicationCodec codec, OkHttpClient client, MeterRegistry meterRegistry) {
+        this.peer = peer;
+        this.url = peer.replaceAll("/+$", "") + CHANGES_PATH;
+        this.properties = properties;
+        this.codec = codec;
+        this.client = client;
+        this.buffer = new MpscRingBuffer<>(properties.getBufferSize());
+        this.batch = new ArrayList<>(properties.getBatchSize());
+        FunctionCounter.builder("replication.records", sent, AtomicLong::get)
+                .tag("peer", peer)
+                .tag("result", "sent")
+                .register(meterRegistry);
+        FunctionCounter.builder("replication.records", dropped, AtomicLong::get)
+                .tag("peer", peer)
+                .tag("result", "dropped")
+                .register(meterRegistry);
+        this.batchBytes = DistributionSummary.builder("replication.batch.bytes")
+                .tag("peer", peer)
+                .description("每批变更压缩后的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  写线程调用，不阻塞，队列满时丢弃
+     **/
+    void offer(ChangeRecord record) {
+        if(!buffer.offer(record)){
+            dropped.incrementAndGet();
+        }
+    }
+
+    void start() {
+        thread = new Thread(this::run, "replication-" + peer.replaceAll("^https?://", ""));
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void run() {
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(properties.getLingerMillis());
+        long backoff = properties.getBackoffMillis();
+        while (running) {
+            if(!fill(lingerNanos)){
+                LockSupport.parkNanos(this, lingerNanos);
+                continue;
+            }
+            if(send()){
+                backoff = properties.getBackoffMillis();
+            }else {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(backoff));
+                backoff = Math.min(backoff * 2, properties.getMaxBackoffMillis());
+            }
+        }
+        // 退出前尽量发完当前一批
+        if(fill(0)){
+            send();
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  补满当前一批，不满时最多再等lingerNanos，返回是否有待发送的变更
+     **/
+    private boolean fill(long lingerNanos) {
+        drain();
+        if(!batch.isEmpty() && batch.size() < properties.getBatchSize() && lingerNanos > 0){
+            LockSupport.parkNanos(this, lingerNanos);
+            drain();
+        }
+        return !batch.isEmpty();
+    }
+
+    private void drain() {
+        ChangeRecord record;
+        while (batch.size() < properties.getBatchSize() && (record = buffer.poll()) != null) {
+            batch.add(record);
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  发送当前一批，连接失败或5xx时保留剩余变更并返回false；413时对半拆分重发，单条仍然过大或其他4xx时丢弃
+     **/
+    private boolean send() {
+        int chunk = batch.size();
+        try {
+            while (!batch.isEmpty()) {
+                List<ChangeRecord> records = batch.subList(0, Math.min(chunk, batch.size()));
+                int code = post(records);
+                if(code == HTTP_PAYLOAD_TOO_LARGE && records.size() > 1){
+                    chunk = (records.size() + 1) / 2;
+                    continue;
+                }
+                if(code >= 200 && code < 300){
+                    sent.addAndGet(records.size());
+                }else if(code >= 500){
+                    throw new IOException("HTTP " + code);
+                }else {
+                    // 4xx重试也不会成功，继续重试会让后面的变更一直发不出去
+                    dropped.addAndGet(records.size());
+                    log.error("{}拒绝了{}条变更(HTTP {})，已丢弃", peer, records.size(), code);
+                }
+                records.clear();
+            }
+            if(failing){
+                failing = false;
+                log.info("复制到{}已恢复", peer);
+            }
+            return true;
+        } catch (IOException e) {
+            // 连续失败只打印一次
+            if(!failing){
+                failing = true;
+                log.warn("复制到{}失败，{}条变更稍后重试: {}", peer, batch.size(), e.toString());
+            }
+            return false;
+        }
+    }
+
+    private int post(List<ChangeRecord> records) throws IOException {
+        byte[] body = codec.encode(new ReplicationBatch(properties.getNodeId(), records, null));
+        Request request = new Request.Builder().url(url)
+                .header("Content-Encoding", ReplicationCodec.GZIP)
+                .header(ORIGIN_HEADER, properties.getNodeId())
+                .post(RequestBody.create(JSON, body))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            if(response.isSuccessful()){
+                batchBytes.record(body.length);
+            }
+            return response.code();
+        }
+    }
+}
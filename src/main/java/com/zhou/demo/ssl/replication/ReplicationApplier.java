@@ -0,0 +1,67 @@
+package com.zhou.demo.ssl.replication;
+
+import com.zhou.demo.ssl.service.PersonService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * @ClassName ReplicationApplier
+ * @Author JackZhou
+ * @Desc  应用其他节点的变更和快照，比本地旧的变更忽略，版本超出允许时钟偏差的变更拒绝，
+ *        指标 replication.applied{result=applied|stale|rejected}
+ **/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "replication.enabled", havingValue = "true")
+public class ReplicationApplier {
+
+    private final PersonService personService;
+    private final ReplicationVersions versions;
+    private final Counter applied;
+    private final Counter stale;
+    private final Counter rejected;
+
+    public ReplicationApplier(PersonService personService, ReplicationVersions versions, MeterRegistry meterRegistry) {
+        this.personService = personService;
+        this.versions = versions;
+        this.applied = resultCounter(meterRegistry, "applied");
+        this.stale = resultCounter(meterRegistry, "stale");
+        this.rejected = resultCounter(meterRegistry, "rejected");
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  按顺序应用，返回实际写入的条数
+     **/
+    public int apply(List<ChangeRecord> records) {
+        int count = 0;
+        int skipped = 0;
+        for (ChangeRecord record : records) {
+            if(!versions.isWithinDrift(record.getVersion())){
+                skipped++;
+                log.warn("拒绝版本超前的复制变更 id={} version={} origin={}", record.getId(), record.getVersion(), record.getOrigin());
+                continue;
+            }
+            if(personService.applyReplicated(record.getId(), record.getPerson(),
+                    () -> versions.advance(record.getId(), record.getVersion(), record.getOrigin(), record.isDelete()))){
+                count++;
+            }
+        }
+        applied.increment(count);
+        rejected.increment(skipped);
+        stale.increment(records.size() - count - skipped);
+        return count;
+    }
+
+    private static Counter resultCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("replication.applied")
+                .tag("result", result)
+                .description("收到的复制变更")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,24 @@
+package com.zhou.demo.ssl.replication;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * @ClassName ReplicationBatch
+ * @Author JackZhou
+ * @Desc  一批变更或一页快照，nextCursor只用于快照，为空表示没有下一页
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicationBatch {
+
+    private String origin;
+
+    private List<ChangeRecord> records;
+
+    private String nextCursor;
+}
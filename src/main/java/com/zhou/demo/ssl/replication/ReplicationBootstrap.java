@@ -0,0 +1,107 @@
+package com.zhou.demo.ssl.replication;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName ReplicationBootstrap
+ * @Author JackZhou
+ * @Desc  启动完成后从replication.bootstrap-from分页拉取快照
+ *
+ * 拉取期间本节点已经在接收其他节点的实时变更，快照和变更都按版本合并，比本地旧的记录不会覆盖。
+ * 快照不包含删除，本地多出的记录不会被删除。对端不可用时按退避间隔重试，直到拉取完成或应用关闭。
+ **/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "replication.enabled", havingValue = "true")
+public class ReplicationBootstrap {
+
+    static final String SNAPSHOT_PATH = "/internal/replication/snapshot";
+
+    private final ReplicationProperties properties;
+    private final ReplicationApplier applier;
+    private final ReplicationCodec codec;
+    private final OkHttpClient client;
+
+    public ReplicationBootstrap(ReplicationProperties properties, ReplicationApplier applier, ReplicationCodec codec,
+                                OkHttpClient replicationHttpClient) {
+        this.properties = properties;
+        this.applier = applier;
+        this.codec = codec;
+        this.client = replicationHttpClient;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        String source = properties.getBootstrapFrom();
+        if(source == null || source.trim().isEmpty()){
+            return;
+        }
+        Thread thread = new Thread(() -> bootstrap(source.trim()), "replication-bootstrap");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void bootstrap(String source) {
+        long start = System.currentTimeMillis();
+        long backoff = properties.getBackoffMillis();
+        long received = 0;
+        long applied = 0;
+        String cursor = null;
+        while (true) {
+            ReplicationBatch page;
+            try {
+                page = fetch(source, cursor);
+            } catch (IOException e) {
+                // 对端还没启动时会连续失败，只打印第一次
+                if(backoff == properties.getBackoffMillis()){
+                    log.warn("从{}拉取快照失败，稍后重试: {}", source, e.toString());
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, properties.getMaxBackoffMillis());
+                continue;
+            }
+            received += page.getRecords().size();
+            applied += applier.apply(page.getRecords());
+            cursor = page.getNextCursor();
+            if(cursor == null){
+                break;
+            }
+        }
+        log.info("从{}拉取快照完成，收到{}条，写入{}条，耗时{}ms", source, received, applied, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  响应是gzip压缩的，OkHttp自动添加Accept-Encoding并透明解压
+     **/
+    private ReplicationBatch fetch(String source, String cursor) throws IOException {
+        HttpUrl.Builder url = HttpUrl.get(source.replaceAll("/+$", "") + SNAPSHOT_PATH).newBuilder()
+                .addQueryParameter("limit", String.valueOf(properties.getSnapshotPageSize()));
+        if(cursor != null){
+            url.addQueryParameter("cursor", cursor);
+        }
+        Request request = new Request.Builder().url(url.build()).get().build();
+        try (Response response = client.newCall(request).execute()) {
+            if(!response.isSuccessful()){
+                throw new IOException("HTTP " + response.code());
+            }
+            return codec.decode(response.body().byteStream());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.zhou.demo.ssl.replication;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @ClassName ReplicationCodec
+ * @Author JackZhou
+ * @Desc  ReplicationBatch的JSON序列化和gzip压缩，使用应用的ObjectMapper，和接口返回的Person格式一致。
+ *        解码时JSON超过replication.max-decoded-bytes抛出TooLargeException
+ **/
+@Component
+@ConditionalOnProperty(name = "replication.enabled", havingValue = "true")
+public class ReplicationCodec {
+
+    public static final String GZIP = "gzip";
+
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    private final long maxDecodedBytes;
+
+    public static class TooLargeException extends IOException {
+        TooLargeException(long limit) {
+            super("复制数据解压后超过" + limit + "字节");
+        }
+    }
+
+    public ReplicationCodec(ObjectMapper objectMapper, ReplicationProperties properties) {
+        this.writer = objectMapper.writerFor(ReplicationBatch.class);
+        this.reader = objectMapper.readerFor(ReplicationBatch.class);
+        this.maxDecodedBytes = properties.getMaxDecodedBytes();
+    }
+
+    public byte[] encode(ReplicationBatch batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes, 8192)) {
+            writer.writeValue(gzip, batch);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  compressed为false时body是未压缩的JSON
+     **/
+    public ReplicationBatch decode(byte[] body, boolean compressed) throws IOException {
+        try (InputStream in = compressed ? new GZIPInputStream(new ByteArrayInputStream(body), 8192) : new ByteArrayInputStream(body)) {
+            return read(in);
+        }
+    }
+
+    public ReplicationBatch decode(InputStream json) throws IOException {
+        return read(json);
+    }
+
+    private ReplicationBatch read(InputStream in) throws IOException {
+        try {
+            return reader.readValue(new LimitedInputStream(in, maxDecodedBytes));
+        } catch (JsonMappingException e) {
+            // 反序列化集合元素时读流的异常会被包装，取出来交给调用方按大小超限处理
+            if(e.getCause() instanceof TooLargeException){
+                throw (TooLargeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 读取超过limit字节时抛出TooLargeException，而不是像截断一样返回EOF
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b >= 0){
+                consume(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if(n > 0){
+                consume(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            consume(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void consume(long n) throws IOException {
+            remaining -= n;
+            if(remaining < 0){
+                throw new TooLargeException(limit);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.zhou.demo.ssl.replication;
+
+import com.cloud.demo.common.bean.Person;
+import com.zhou.demo.ssl.bean.ClientIdentity;
+import com.zhou.demo.ssl.bean.PersonPage;
+import com.zhou.demo.ssl.index.PersonIndexes;
+import com.zhou.demo.ssl.repository.PersonRepository;
+import com.zhou.demo.ssl.service.PersonService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @ClassName ReplicationController
+ * @Author JackZhou
+ * @Desc  节点之间的复制接口，只在HTTPS连接器上可用(内部明文连接器的allowed-paths不包含)，
+ *        只接受replication.allowed-common-names中的客户端证书CN，列表为空时启动失败。servlet和reactive模式通用。
+ *        请求体大小在读取前由ReplicationConfig中的过滤器按Content-Length检查，这里再限制解压后的大小
+ **/
+@Slf4j
+@RestController
+@RequestMapping("/internal/replication")
+@ConditionalOnProperty(name = "replication.enabled", havingValue = "true")
+public class ReplicationController {
+
+    private final ReplicationProperties properties;
+    private final ReplicationApplier applier;
+    private final ReplicationVersions versions;
+    private final ReplicationCodec codec;
+    private final PersonService personService;
+    private final PersonIndexes personIndexes;
+    private final PersonRepository personRepository;
+
+    public ReplicationController(ReplicationProperties properties, ReplicationApplier applier, ReplicationVersions versions,
+                                 ReplicationCodec codec, PersonService personService, PersonIndexes personIndexes,
+                                 PersonRepository personRepository) {
+        this.properties = properties;
+        this.applier = applier;
+        this.versions = versions;
+        this.codec = codec;
+        this.personService = personService;
+        this.personIndexes = personIndexes;
+        this.personRepository = personRepository;
+        if(properties.getAllowedCommonNames().stream().noneMatch(StringUtils::hasText)){
+            throw new IllegalStateException("开启复制时必须配置replication.allowed-common-names");
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  接收一批变更，返回实际写入的条数；body按Content-Encoding决定是否解压
+     **/
+    @PostMapping("/changes")
+    public ResponseEntity<Integer> changes(@RequestBody byte[] body, ClientIdentity identity,
+                                           @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String encoding) throws IOException {
+        if(!isPeer(identity)){
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        ReplicationBatch batch;
+        try {
+            batch = codec.decode(body, ReplicationCodec.GZIP.equalsIgnoreCase(encoding));
+        } catch (ReplicationCodec.TooLargeException e) {
+            log.warn("拒绝过大的复制请求 {}: {}", identity.getSubject(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok(applier.apply(batch.getRecords()));
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  按id升序分页导出全量数据和各条记录的版本，gzip压缩返回，供新节点启动时拉取。
+     *               每条记录在该id的锁内重新读取，版本和数据一致，分页后被删除的记录跳过
+     **/
+    @GetMapping("/snapshot")
+    public ResponseEntity<byte[]> snapshot(@RequestParam(value = "cursor", required = false) String cursor,
+                                           @RequestParam(value = "limit", defaultValue = "1000") int limit,
+                                           ClientIdentity identity) throws IOException {
+        if(!isPeer(identity)){
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        PersonPage page = personService.findPage(cursor, limit);
+        List<ChangeRecord> records = new ArrayList<>(page.getItems().size());
+        for (Person item : page.getItems()) {
+            ChangeRecord record = personIndexes.withLock(item.getId(), () -> {
+                Person current = personRepository.get(item.getId());
+                return current == null ? null : versions.snapshotOf(current);
+            });
+            if(record != null){
+                records.add(record);
+            }
+        }
+        byte[] body = codec.encode(new ReplicationBatch(properties.getNodeId(), records, page.getNextCursor()));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_ENCODING, ReplicationCodec.GZIP)
+                .body(body);
+    }
+
+    private boolean isPeer(ClientIdentity identity) {
+        if(identity != null && properties.getAllowedCommonNames().contains(identity.getCommonName())){
+            return true;
+        }
+        log.warn("拒绝非复制节点的请求 {}", identity == null ? null : identity.getSubject());
+        return false;
+    }
+}
@@ -0,0 +1,74 @@
+package com.zhou.demo.ssl.replication;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @ClassName ReplicationProperties
+ * @Author JackZhou
+ * @Desc  多节点复制配置，peers为其他节点的https地址，节点之间使用双向认证
+ **/
+@Data
+@ConfigurationProperties(prefix = "replication")
+public class ReplicationProperties {
+
+    private boolean enabled = false;
+
+    // 节点标识，各节点必须不同，版本相同时按节点标识决定先后
+    private String nodeId = "node1";
+
+    // 例如 https://127.0.0.1:11011
+    private List<String> peers = new ArrayList<>();
+
+    // 启动后从该节点拉取全量快照，为空不拉取
+    private String bootstrapFrom;
+
+    // 每批最多的变更条数
+    private int batchSize = 500;
+
+    // 收到第一条变更后最多等待多久凑批
+    private long lingerMillis = 20;
+
+    // 每个peer待发送变更的环形队列容量，peer长时间不可用时队列满后丢弃
+    private int bufferSize = 65536;
+
+    // 发送失败后的重试间隔，指数增长到maxBackoffMillis
+    private long backoffMillis = 200;
+
+    private long maxBackoffMillis = 5000;
+
+    // 快照每页的条数
+    private int snapshotPageSize = 1000;
+
+    // 接收复制请求时只允许这些客户端证书CN，开启复制时不能为空
+    private List<String> allowedCommonNames = new ArrayList<>();
+
+    // 其他节点的版本最多领先本地时钟多少毫秒，超过的变更拒绝，避免一条错误的版本把本地时钟推到很久以后
+    private long maxClockDriftMillis = 60000;
+
+    // 变更请求的请求体(压缩后)上限，按Content-Length在读取前检查，超过返回413
+    private long maxRequestBytes = 8 * 1024 * 1024;
+
+    // 解压后的JSON上限，防止压缩比很高的请求体
+    private long maxDecodedBytes = 64 * 1024 * 1024;
+
+    private Credentials credentials = new Credentials();
+
+    @Data
+    public static class Credentials {
+        // pem 或 jks
+        private String type = "pem";
+        private String caCert = "src/main/resources/httpsClient/ca.crt";
+        private String clientKey = "src/main/resources/httpsClient/target_pkcs8_privatekey.key";
+        private String clientCert = "src/main/resources/httpsClient/client.crt";
+        private String clientJks = "src/main/resources/httpsClient/client.jks";
+        private String keyStorePassword;
+        // 证书文件变化后自动重新加载，<=0不监听
+        private long reloadDebounceMillis = 500;
+        // 是否校验对端证书的主机名，demo的服务端证书CN为aa.test.com且没有SAN，本机多节点测试时需要关闭
+        private boolean verifyHostname = true;
+    }
+}
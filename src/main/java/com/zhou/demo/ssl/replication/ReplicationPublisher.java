@@ -0,0 +1,67 @@
+package com.zhou.demo.ssl.replication;
+
+import com.cloud.demo.common.bean.Person;
+import com.zhou.demo.ssl.service.PersonChangeListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @ClassName ReplicationPublisher
+ * @Author JackZhou
+ * @Desc  把本节点的Person写入复制到replication.peers，每个peer一个发送线程，见PeerSender
+ *
+ * 只复制本节点发起的写，收到的复制变更不再转发，多节点之间需要两两互配peers。
+ **/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "replication.enabled", havingValue = "true")
+public class ReplicationPublisher implements PersonChangeListener, InitializingBean, DisposableBean {
+
+    private final ReplicationVersions versions;
+    private final List<PeerSender> senders = new ArrayList<>();
+
+    public ReplicationPublisher(ReplicationProperties properties, ReplicationVersions versions, ReplicationCodec codec,
+                                OkHttpClient replicationHttpClient, MeterRegistry meterRegistry) {
+        this.versions = versions;
+        for (String peer : properties.getPeers()) {
+            senders.add(new PeerSender(peer, properties, codec, replicationHttpClient, meterRegistry));
+        }
+        log.info("节点{}复制到{}", properties.getNodeId(), properties.getPeers());
+    }
+
+    @Override
+    public void saved(Person person) {
+        publish(new ChangeRecord(person.getId(), person, versions.stampLocal(person.getId(), false), versions.getNodeId()));
+    }
+
+    @Override
+    public void deleted(String id) {
+        publish(new ChangeRecord(id, null, versions.stampLocal(id, true), versions.getNodeId()));
+    }
+
+    private void publish(ChangeRecord record) {
+        for (PeerSender sender : senders) {
+            sender.offer(record);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        senders.forEach(PeerSender::start);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        for (PeerSender sender : senders) {
+            sender.stop();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.zhou.demo.ssl.replication;
+
+import com.cloud.demo.common.bean.Person;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ClassName ReplicationVersions
+ * @Author JackZhou
+ * @Desc  每个id最后一次变更的版本，同一id以版本大的为准(last-writer-wins)，版本相同时比较节点标识
+ *
+ * 版本是混合逻辑时钟：高位为毫秒时间戳，低16位为同一毫秒内的序号；收到其他节点的版本后本地时钟至少推进到该版本，
+ * 本节点之后的写一定比已经看到的变更新。删除也保留版本(墓碑)，晚到的旧保存不会让已删除的记录复活。
+ * 版本只在内存中，重启后从0开始。存在的记录各占一条版本；墓碑超过max-clock-drift-millis + max-backoff-millis后定期清理，
+ * 之后再收到该id更旧的保存会被当作新记录接受。
+ * 领先本地物理时钟超过replication.max-clock-drift-millis的版本拒绝，不推进时钟。
+ * 调用方需持有该id的锁(PersonIndexes.withLock)，同一id的判断和写入不会交错；清理不持有锁，只移除仍是原墓碑的记录。
+ **/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "replication.enabled", havingValue = "true")
+public class ReplicationVersions {
+
+    private static final int LOGICAL_BITS = 16;
+
+    private final String nodeId;
+    private final long maxClockDriftMillis;
+    private final long tombstoneRetentionMillis;
+    private final AtomicLong clock = new AtomicLong();
+    private final ConcurrentMap<String, Stamp> stamps = new ConcurrentHashMap<>();
+
+    static final class Stamp {
+        final long version;
+        final String origin;
+        final boolean tombstone;
+
+        Stamp(long version, String origin, boolean tombstone) {
+            this.version = version;
+            this.origin = origin;
+            this.tombstone = tombstone;
+        }
+
+        boolean isOlderThan(long otherVersion, String otherOrigin) {
+            return version < otherVersion || version == otherVersion && origin.compareTo(otherOrigin) < 0;
+        }
+    }
+
+    public ReplicationVersions(ReplicationProperties properties) {
+        this.nodeId = properties.getNodeId();
+        this.maxClockDriftMillis = properties.getMaxClockDriftMillis();
+        // 晚到的旧变更最多落后一个时钟偏差加一次最大退避
+        this.tombstoneRetentionMillis = properties.getMaxClockDriftMillis() + properties.getMaxBackoffMillis();
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  本节点写入时生成新版本并记录，tombstone表示删除
+     **/
+    public long stampLocal(String id, boolean tombstone) {
+        long physical = System.currentTimeMillis() << LOGICAL_BITS;
+        long version = clock.updateAndGet(last -> Math.max(physical, last + 1));
+        stamps.put(id, new Stamp(version, nodeId, tombstone));
+        return version;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  其他节点的变更比本地记录新时记录并返回true，本地没有记录时总是接受；版本超出允许的时钟偏差时返回false
+     **/
+    public boolean advance(String id, long version, String origin, boolean tombstone) {
+        if(!isWithinDrift(version)){
+            return false;
+        }
+        clock.accumulateAndGet(version, Math::max);
+        Stamp current = stamps.get(id);
+        if(current != null && !current.isOlderThan(version, origin)){
+            return false;
+        }
+        stamps.put(id, new Stamp(version, origin, tombstone));
+        return true;
+    }
+
+    public boolean isWithinDrift(long version) {
+        return version <= (System.currentTimeMillis() + maxClockDriftMillis) << LOGICAL_BITS;
+    }
+
+    @Scheduled(fixedDelayString = "${replication.tombstone-prune-interval-ms:60000}")
+    public void pruneTombstones() {
+        int pruned = pruneTombstones(System.currentTimeMillis());
+        if(pruned > 0){
+            log.debug("清理{}条过期墓碑，剩余{}条版本", pruned, stamps.size());
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  移除版本时间早于nowMillis - tombstoneRetentionMillis的墓碑，返回移除的条数
+     **/
+    int pruneTombstones(long nowMillis) {
+        long expiredBefore = (nowMillis - tombstoneRetentionMillis) << LOGICAL_BITS;
+        int pruned = 0;
+        for (Map.Entry<String, Stamp> entry : stamps.entrySet()) {
+            Stamp stamp = entry.getValue();
+            // 期间该id又被写入时值已经换掉，remove不会生效
+            if(stamp.tombstone && stamp.version < expiredBefore && stamps.remove(entry.getKey(), stamp)){
+                pruned++;
+            }
+        }
+        return pruned;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  快照中使用，没有记录(重启前写入)时版本为0
+     **/
+    public ChangeRecord snapshotOf(Person person) {
+        Stamp stamp = stamps.get(person.getId());
+        return stamp == null ? new ChangeRecord(person.getId(), person, 0, nodeId)
+                : new ChangeRecord(person.getId(), person, stamp.version, stamp.origin);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int size() {
+        return stamps.size();
+    }
+}
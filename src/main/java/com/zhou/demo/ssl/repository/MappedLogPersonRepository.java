@@ -0,0 +1,425 @@
+package com.zhou.demo.ssl.repository;
+
+import com.cloud.demo.common.bean.Person;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.zip.CRC32;
+
+/**
+ * @ClassName MappedLogPersonRepository
+ * @Author JackZhou
+ * @Desc  基于内存映射文件的追加写日志存储
+ *
+ * 文件按segmentSize切分为多个段，每段单独映射，单条记录不跨段，写不下时从下一段开头写。
+ * 记录格式：int 长度 | int crc32 | byte 类型(1保存 2删除) | unsigned short id长度 | id | person json
+ * 内存中只保存 id -> 记录偏移量 的HashMap索引(点查O(1))和一份有序的id集合(游标分页)，读取时按偏移量直接从映射区反序列化。
+ * 启动时顺序扫描恢复索引，遇到长度或crc不合法的记录视为崩溃时未写完，从该位置截断。
+ * 失效记录占比超过阈值时定时压缩：把存活记录顺序写到新文件后原子替换，压缩期间写阻塞、读不受影响。
+ **/
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "person.store.type", havingValue = "mapped-log")
+public class MappedLogPersonRepository implements PersonRepository {
+
+    private static final byte TYPE_SAVE = 1;
+    private static final byte TYPE_DELETE = 2;
+    // 长度 + crc
+    private static final int HEADER_SIZE = 8;
+    // 类型 + id长度
+    private static final int BODY_PREFIX_SIZE = 3;
+    // id长度按无符号short存储
+    private static final int MAX_ID_BYTES = 0xFFFF;
+
+    private final ObjectMapper objectMapper;
+    private final Path logPath;
+    private final Path compactPath;
+    private final int segmentSize;
+    private final long compactMinBytes;
+    private final double compactGarbageRatio;
+
+    private volatile State state;
+    // 以下字段只在持有this锁时修改
+    private long writeOffset;
+    private long garbageBytes;
+
+    /**
+     * 映射区和索引，压缩后整体替换，读方法拿到的始终是一致的一组。
+     * index和sortedIds只在持有外部this锁时修改，先改index再改sortedIds，分页时id对应的偏移量可能已经不存在
+     */
+    private static class State {
+        final FileChannel channel;
+        final ConcurrentHashMap<String, Long> index;
+        final ConcurrentSkipListSet<String> sortedIds;
+        volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+        State(FileChannel channel, ConcurrentHashMap<String, Long> index, ConcurrentSkipListSet<String> sortedIds) {
+            this.channel = channel;
+            this.index = index;
+            this.sortedIds = sortedIds;
+        }
+    }
+
+    public MappedLogPersonRepository(ObjectMapper objectMapper,
+                                     @Value("${person.store.path:data/person.log}") String path,
+                                     @Value("${person.store.segment-size:67108864}") int segmentSize,
+                                     @Value("${person.store.compact-min-bytes:16777216}") long compactMinBytes,
+                                     @Value("${person.store.compact-garbage-ratio:0.5}") double compactGarbageRatio) {
+        this.objectMapper = objectMapper;
+        this.logPath = Paths.get(path);
+        this.compactPath = Paths.get(path + ".compact");
+        this.segmentSize = segmentSize;
+        this.compactMinBytes = compactMinBytes;
+        this.compactGarbageRatio = compactGarbageRatio;
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        if(logPath.getParent() != null){
+            Files.createDirectories(logPath.getParent());
+        }
+        // 压缩过程中崩溃留下的临时文件，原日志仍然完整
+        Files.deleteIfExists(compactPath);
+        long start = System.currentTimeMillis();
+        FileChannel channel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ConcurrentHashMap<String, Long> index = new ConcurrentHashMap<>();
+        long end = recover(channel, index);
+        if(end < channel.size()){
+            // 包括映射时预分配的空白区域和崩溃时没有写完的记录
+            log.info("person日志有效数据结束于偏移量{}，截断其后{}字节", end, channel.size() - end);
+            channel.truncate(end);
+        }
+        state = new State(channel, index, new ConcurrentSkipListSet<>(index.keySet()));
+        mapSegments(state, end);
+        writeOffset = end;
+        log.info("person日志{}恢复完成，记录数{}，大小{}字节，耗时{}ms", logPath, index.size(), end, System.currentTimeMillis() - start);
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        State current = state;
+        for (MappedByteBuffer segment : current.segments) {
+            segment.force();
+        }
+        current.channel.close();
+    }
+
+    @Override
+    public Person get(String id) {
+        State current = state;
+        Long offset = current.index.get(id);
+        if(offset == null){
+            return null;
+        }
+        return readPerson(current, offset);
+    }
+
+    @Override
+    public synchronized Person save(Person person) {
+        Person previous = get(person.getId());
+        try {
+            long offset = append(TYPE_SAVE, person.getId(), objectMapper.writeValueAsBytes(person));
+            Long previousOffset = state.index.put(person.getId(), offset);
+            if(previousOffset != null){
+                garbageBytes += recordSize(state, previousOffset);
+            }else {
+                state.sortedIds.add(person.getId());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return previous;
+    }
+
+    @Override
+    public synchronized Person delete(String id) {
+        Person previous = get(id);
+        if(previous == null){
+            return null;
+        }
+        try {
+            long offset = append(TYPE_DELETE, id, new byte[0]);
+            Long previousOffset = state.index.remove(id);
+            state.sortedIds.remove(id);
+            // 删除标记本身在压缩时也会被丢弃
+            garbageBytes += recordSize(state, previousOffset) + recordSize(state, offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return previous;
+    }
+
+    @Override
+    public long count() {
+        return state.index.size();
+    }
+
+    @Override
+    public List<Person> findPage(String afterId, int limit) {
+        State current = state;
+        NavigableSet<String> tail = afterId == null ? current.sortedIds : current.sortedIds.tailSet(afterId, false);
+        List<Person> page = new ArrayList<>(Math.min(limit, 1024));
+        for (String id : tail) {
+            if(page.size() >= limit){
+                break;
+            }
+            Long offset = current.index.get(id);
+            if(offset != null){
+                page.add(readPerson(current, offset));
+            }
+        }
+        return page;
+    }
+
+    /**
+     * 整批只获取一次锁
+     */
+    @Override
+    public synchronized void saveAll(Collection<Person> persons) {
+        for (Person person : persons) {
+            save(person);
+        }
+    }
+
+    @Override
+    public synchronized List<Person> deleteAll(Collection<String> ids) {
+        return PersonRepository.super.deleteAll(ids);
+    }
+
+    @Scheduled(fixedDelayString = "${person.store.compact-interval-ms:60000}")
+    public void compactIfNeeded() {
+        try {
+            synchronized (this) {
+                if(writeOffset < compactMinBytes || garbageBytes < writeOffset * compactGarbageRatio){
+                    return;
+                }
+                compact();
+            }
+        } catch (IOException e) {
+            log.error("person日志压缩失败", e);
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  把存活记录顺序写入新文件，刷盘后原子替换旧文件
+     **/
+    synchronized void compact() throws IOException {
+        long start = System.currentTimeMillis();
+        State current = state;
+        ConcurrentHashMap<String, Long> newIndex = new ConcurrentHashMap<>(current.index.size() * 2);
+        long newOffset = 0;
+        try (FileChannel out = FileChannel.open(compactPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // 按id顺序写入，分页读取时基本是顺序访问
+            for (String id : current.sortedIds) {
+                ByteBuffer record = readRecord(current, current.index.get(id));
+                newOffset = alignToSegment(newOffset, record.remaining());
+                newIndex.put(id, newOffset);
+                int size = record.remaining();
+                long position = newOffset;
+                while (record.hasRemaining()) {
+                    position += out.write(record, position);
+                }
+                newOffset += size;
+            }
+            out.force(true);
+        }
+        Files.move(compactPath, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(logPath.toAbsolutePath().getParent());
+        FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        State newState = new State(channel, newIndex, new ConcurrentSkipListSet<>(current.sortedIds));
+        mapSegments(newState, newOffset);
+        long oldSize = writeOffset;
+        state = newState;
+        writeOffset = newOffset;
+        garbageBytes = 0;
+        // 旧映射区在正在进行的读完成后由GC回收
+        current.channel.close();
+        log.info("person日志压缩完成，{}字节 -> {}字节，耗时{}ms", oldSize, newOffset, System.currentTimeMillis() - start);
+    }
+
+    private long append(byte type, String id, byte[] value) throws IOException {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        if(idBytes.length > MAX_ID_BYTES){
+            throw new IllegalArgumentException("id超过" + MAX_ID_BYTES + "字节: " + idBytes.length);
+        }
+        int bodyLength = BODY_PREFIX_SIZE + idBytes.length + value.length;
+        ByteBuffer body = ByteBuffer.allocate(bodyLength);
+        body.put(type).putShort((short) idBytes.length).put(idBytes).put(value);
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), 0, bodyLength);
+
+        long offset = alignToSegment(writeOffset, HEADER_SIZE + bodyLength);
+        MappedByteBuffer segment = segment(state, (int) (offset / segmentSize));
+        ByteBuffer target = segment.duplicate();
+        target.position((int) (offset % segmentSize));
+        target.putInt(bodyLength).putInt((int) crc.getValue()).put(body.array());
+        writeOffset = offset + HEADER_SIZE + bodyLength;
+        return offset;
+    }
+
+    /**
+     * 记录不跨段，当前段放不下时返回下一段的起始偏移量
+     */
+    private long alignToSegment(long offset, int recordSize) {
+        if(recordSize > segmentSize){
+            throw new IllegalArgumentException("记录大小" + recordSize + "超过段大小" + segmentSize);
+        }
+        long position = offset % segmentSize;
+        if(position + recordSize > segmentSize){
+            return offset - position + segmentSize;
+        }
+        return offset;
+    }
+
+    private MappedByteBuffer segment(State current, int segmentIndex) throws IOException {
+        MappedByteBuffer[] segments = current.segments;
+        if(segmentIndex < segments.length){
+            return segments[segmentIndex];
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(segments, segmentIndex + 1);
+        for (int i = segments.length; i <= segmentIndex; i++) {
+            grown[i] = current.channel.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentSize, segmentSize);
+        }
+        current.segments = grown;
+        return grown[segmentIndex];
+    }
+
+    private void mapSegments(State current, long end) throws IOException {
+        if(end > 0){
+            segment(current, (int) ((end - 1) / segmentSize));
+        }
+    }
+
+    private Person readPerson(State current, long offset) {
+        ByteBuffer record = readRecord(current, offset);
+        int idLength = record.getShort(HEADER_SIZE + 1) & MAX_ID_BYTES;
+        int valueStart = HEADER_SIZE + BODY_PREFIX_SIZE + idLength;
+        try {
+            return objectMapper.readValue(record.array(), valueStart, record.remaining() - valueStart, Person.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ByteBuffer readRecord(State current, long offset) {
+        ByteBuffer segment = current.segments[(int) (offset / segmentSize)].duplicate();
+        int position = (int) (offset % segmentSize);
+        int size = HEADER_SIZE + segment.getInt(position);
+        byte[] record = new byte[size];
+        segment.position(position);
+        segment.get(record);
+        return ByteBuffer.wrap(record);
+    }
+
+    private int recordSize(State current, long offset) {
+        return HEADER_SIZE + current.segments[(int) (offset / segmentSize)].getInt((int) (offset % segmentSize));
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  顺序扫描日志重建索引，返回最后一条完整记录的结束位置
+     **/
+    private long recover(FileChannel channel, Map<String, Long> index) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long offset = 0;
+        long end = 0;
+        while (offset + HEADER_SIZE <= fileSize) {
+            long position = offset % segmentSize;
+            if(position + HEADER_SIZE > segmentSize){
+                offset = offset - position + segmentSize;
+                continue;
+            }
+            header.clear();
+            readFully(channel, header, offset);
+            int bodyLength = header.getInt(0);
+            if(bodyLength < BODY_PREFIX_SIZE || position + HEADER_SIZE + bodyLength > segmentSize || offset + HEADER_SIZE + bodyLength > fileSize){
+                // 当前段剩余空间不足时记录写在下一段开头
+                long nextSegment = offset - position + segmentSize;
+                if(position != 0 && nextSegment + HEADER_SIZE <= fileSize && bodyLength == 0){
+                    offset = nextSegment;
+                    continue;
+                }
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(bodyLength);
+            readFully(channel, body, offset + HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(body.array(), 0, bodyLength);
+            if((int) crc.getValue() != header.getInt(4)){
+                break;
+            }
+            byte type = body.get(0);
+            int idLength = body.getShort(1) & MAX_ID_BYTES;
+            if(BODY_PREFIX_SIZE + idLength > bodyLength){
+                break;
+            }
+            String id = new String(body.array(), BODY_PREFIX_SIZE, idLength, StandardCharsets.UTF_8);
+            if(type == TYPE_SAVE){
+                Long previousOffset = index.put(id, offset);
+                if(previousOffset != null){
+                    garbageBytes += recordSize(channel, previousOffset);
+                }
+            }else {
+                Long previousOffset = index.remove(id);
+                garbageBytes += HEADER_SIZE + bodyLength + (previousOffset == null ? 0 : recordSize(channel, previousOffset));
+            }
+            offset += HEADER_SIZE + bodyLength;
+            end = offset;
+        }
+        return end;
+    }
+
+    private int recordSize(FileChannel channel, long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(channel, length, offset);
+        return HEADER_SIZE + length.getInt(0);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  rename只修改目录项，需要对所在目录fsync才能保证崩溃后不丢；不支持打开目录的平台(Windows)跳过
+     **/
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("目录{}刷盘失败: {}", directory, e.toString());
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if(read < 0){
+                throw new IOException("读取person日志越界,位置:" + position);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.zhou.demo.ssl.repository;
+
+import com.cloud.demo.common.bean.Person;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * @ClassName MemoryPersonRepository
+ * @Author JackZhou
+ * @Desc  基于内存Map的存储，重启后数据丢失。
+ *        点查走ConcurrentHashMap，另外维护一份有序的id集合供游标分页；
+ *        id集合在HashMap的compute内增删，同一id的两份数据不会不一致
+ **/
+@Repository
+@ConditionalOnProperty(name = "person.store.type", havingValue = "memory", matchIfMissing = true)
+public class MemoryPersonRepository implements PersonRepository {
+
+    private final ConcurrentHashMap<String, Person> databases = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<String> sortedIds = new ConcurrentSkipListSet<>();
+
+    @Override
+    public Person get(String id) {
+        return databases.get(id);
+    }
+
+    @Override
+    public Person save(Person person) {
+        Person[] previous = new Person[1];
+        databases.compute(person.getId(), (id, old) -> {
+            if(old == null){
+                sortedIds.add(id);
+            }
+            previous[0] = old;
+            return person;
+        });
+        return previous[0];
+    }
+
+    @Override
+    public Person delete(String id) {
+        Person[] previous = new Person[1];
+        databases.computeIfPresent(id, (key, old) -> {
+            sortedIds.remove(key);
+            previous[0] = old;
+            return null;
+        });
+        return previous[0];
+    }
+
+    @Override
+    public long count() {
+        return databases.size();
+    }
+
+    @Override
+    public List<Person> findPage(String afterId, int limit) {
+        NavigableSet<String> tail = afterId == null ? sortedIds : sortedIds.tailSet(afterId, false);
+        List<Person> page = new ArrayList<>(Math.min(limit, 1024));
+        for (String id : tail) {
+            if(page.size() >= limit){
+                break;
+            }
+            // 遍历期间被删除的跳过
+            Person person = databases.get(id);
+            if(person != null){
+                page.add(person);
+            }
+        }
+        return page;
+    }
+}
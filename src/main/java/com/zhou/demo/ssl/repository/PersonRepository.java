@@ -0,0 +1,70 @@
+package com.zhou.demo.ssl.repository;
+
+import com.cloud.demo.common.bean.Person;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @ClassName PersonRepository
+ * @Author JackZhou
+ * @Desc  Person存储，实现通过person.store.type选择：memory(默认) / mapped-log
+ **/
+public interface PersonRepository {
+
+    Person get(String id);
+
+    /**
+     * 保存person，返回该id之前的值，不存在时返回null
+     */
+    Person save(Person person);
+
+    /**
+     * 删除person，返回被删除的值，不存在时返回null
+     */
+    Person delete(String id);
+
+    long count();
+
+    /**
+     * 按id升序分页，afterId为空时从第一条开始，返回id大于afterId的最多limit条
+     */
+    List<Person> findPage(String afterId, int limit);
+
+    /**
+     * 批量查询，只返回存在的person，按ids的顺序
+     */
+    default Map<String, Person> getAll(Collection<String> ids) {
+        Map<String, Person> result = new LinkedHashMap<>();
+        for (String id : ids) {
+            Person person = get(id);
+            if(person != null){
+                result.put(id, person);
+            }
+        }
+        return result;
+    }
+
+    default void saveAll(Collection<Person> persons) {
+        for (Person person : persons) {
+            save(person);
+        }
+    }
+
+    /**
+     * 批量删除，返回被删除的person
+     */
+    default List<Person> deleteAll(Collection<String> ids) {
+        List<Person> deleted = new ArrayList<>();
+        for (String id : ids) {
+            Person person = delete(id);
+            if(person != null){
+                deleted.add(person);
+            }
+        }
+        return deleted;
+    }
+}
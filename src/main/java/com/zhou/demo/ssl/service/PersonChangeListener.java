@@ -0,0 +1,17 @@
+package com.zhou.demo.ssl.service;
+
+import com.cloud.demo.common.bean.Person;
+
+/**
+ * @ClassName PersonChangeListener
+ * @Author JackZhou
+ * @Desc  本节点写入Person后的通知，由PersonService在该id的锁内调用，同一id的通知顺序和写存储的顺序一致
+ *
+ * 实现不能阻塞，也不能再调用PersonService的写方法。应用其他节点复制来的变更时不会通知。
+ **/
+public interface PersonChangeListener {
+
+    void saved(Person person);
+
+    void deleted(String id);
+}
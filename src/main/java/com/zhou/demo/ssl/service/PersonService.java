@@ -1,51 +1,348 @@
 package com.zhou.demo.ssl.service;
 
 import com.cloud.demo.common.bean.Person;
-import com.google.common.collect.Maps;
+import com.zhou.demo.ssl.bean.PersonPage;
+import com.zhou.demo.ssl.bean.PersonQueryResult;
+import com.zhou.demo.ssl.index.PersonIndexes;
+import com.zhou.demo.ssl.index.QueryCondition;
+import com.zhou.demo.ssl.index.QueryPlan;
+import com.zhou.demo.ssl.repository.PersonRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
 
 /**
  * @ClassName PersonService
  * @Author JackZhou
  * @Date 2020/3/5  11:32
+ *
+ * 操作次数指标 person.operations{operation}，批量操作的数量 person.batch.size{operation}。
+ * get命中缓存时不进入方法，命中率见cache.gets{cache=person}，未命中时计入operation=load。
+ * 写操作同时维护PersonIndexes中的二级索引，属性查询耗时见 person.query{plan=index|scan}。
+ * 本节点的写操作在该id的锁内通知PersonChangeListener(如复制到其他节点)，applyReplicated应用其他节点的变更时不通知。
  **/
 @Service
 @Slf4j
 public class PersonService {
 
+    public static final String PERSON_CACHE = "person";
 
-    private static final Map<String, Person> DATABASES = Maps.newConcurrentMap();
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PersonIndexes personIndexes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private List<PersonChangeListener> changeListeners = Collections.emptyList();
+
+    @Value("${person.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    private Counter saveCounter;
+    private Counter loadCounter;
+    private Counter deleteCounter;
+    private Counter updateCounter;
+    private Counter pageCounter;
+    private Counter queryCounter;
+    private Timer indexQueryTimer;
+    private Timer scanQueryTimer;
+    private DistributionSummary saveBatchSize;
+    private DistributionSummary getBatchSize;
+    private DistributionSummary deleteBatchSize;
+
+    @PostConstruct
+    public void initMetrics() {
+        saveCounter = operationCounter("save");
+        loadCounter = operationCounter("load");
+        deleteCounter = operationCounter("delete");
+        updateCounter = operationCounter("update");
+        pageCounter = operationCounter("page");
+        queryCounter = operationCounter("query");
+        indexQueryTimer = queryTimer("index");
+        scanQueryTimer = queryTimer("scan");
+        saveBatchSize = batchSizeSummary("save.batch");
+        getBatchSize = batchSizeSummary("get.batch");
+        deleteBatchSize = batchSizeSummary("delete.batch");
+    }
 
     @CachePut(value = "person", key = "#person.id")
     public Person save(Person person) {
-        DATABASES.put(person.getId(), person);
+        saveCounter.increment();
+        personIndexes.save(person, this::saveAndNotify);
         return person;
     }
 
     @Cacheable(value = "person", key = "#id")
     public Person get(String id) {
-        return DATABASES.get(id);
+        loadCounter.increment();
+        return personRepository.get(id);
     }
 
     @CacheEvict(value = "person", key = "#id")
     public Person delete(String id){
-        return DATABASES.remove(id);
+        deleteCounter.increment();
+        return personIndexes.delete(id, this::deleteAndNotify);
     }
 
-    @CachePut(value = "person", key = "#person.id")
+    // 缓存的是更新后的值，不存在时返回null，不写缓存；存在判断和写入在同一个id锁内，并发删除后不会重新写回
+    @CachePut(value = "person", key = "#person.id", unless = "#result == null")
     public Person update(Person person) {
-        Person personOld = DATABASES.get(person.getId());
-        if(personOld == null){
-            return null;
+        updateCounter.increment();
+        return personIndexes.withLock(person.getId(), () -> {
+            if(personRepository.get(person.getId()) == null){
+                return null;
+            }
+            personIndexes.save(person, this::saveAndNotify);
+            return person;
+        });
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  绕过缓存直接读存储，供缓存未命中和refreshAfterWrite刷新时加载
+     **/
+    public Person load(String id) {
+        loadCounter.increment();
+        return personRepository.get(id);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  批量保存，存储只写一次，再逐个写入缓存
+     **/
+    public List<Person> saveBatch(List<Person> persons) {
+        checkBatchSize(persons);
+        saveBatchSize.record(persons.size());
+        personIndexes.saveAll(persons, personRepository::getAll, batch -> {
+            personRepository.saveAll(batch);
+            changeListeners.forEach(listener -> batch.forEach(listener::saved));
+        });
+        Cache cache = personCache();
+        persons.forEach(person -> cache.put(person.getId(), person));
+        return persons;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  批量查询，先一次性取缓存中已有的，未命中的再一次性查存储并回填缓存。
+     *               只返回存在的person，按ids的顺序
+     **/
+    @SuppressWarnings("unchecked")
+    public List<Person> getBatch(List<String> ids) {
+        checkBatchSize(ids);
+        getBatchSize.record(ids.size());
+        Set<String> distinctIds = new LinkedHashSet<>(ids);
+        Cache cache = personCache();
+        Object nativeCache = cache.getNativeCache();
+        Map<Object, Object> cached;
+        if(nativeCache instanceof com.github.benmanes.caffeine.cache.Cache){
+            cached = ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache).getAllPresent(distinctIds);
+        }else {
+            cached = new HashMap<>();
+            for (String id : distinctIds) {
+                Cache.ValueWrapper wrapper = cache.get(id);
+                if(wrapper != null){
+                    cached.put(id, wrapper.get());
+                }
+            }
+        }
+        List<String> misses = new ArrayList<>();
+        for (String id : distinctIds) {
+            if(!cached.containsKey(id)){
+                misses.add(id);
+            }
+        }
+        Map<String, Person> loaded = misses.isEmpty() ? Collections.emptyMap() : personRepository.getAll(misses);
+        loaded.forEach(cache::put);
+
+        List<Person> result = new ArrayList<>(distinctIds.size());
+        for (String id : distinctIds) {
+            Object value = cached.containsKey(id) ? cached.get(id) : loaded.get(id);
+            // 缓存中的空值(NullValue)表示不存在
+            if(value instanceof Person){
+                result.add((Person) value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  批量删除，返回被删除的person
+     **/
+    public List<Person> deleteBatch(List<String> ids) {
+        checkBatchSize(ids);
+        deleteBatchSize.record(ids.size());
+        List<Person> deleted = personIndexes.deleteAll(ids, batch -> {
+            List<Person> result = personRepository.deleteAll(batch);
+            // 本节点不存在的id也通知，其他节点可能已经有该id
+            changeListeners.forEach(listener -> batch.forEach(listener::deleted));
+            return result;
+        });
+        Cache cache = personCache();
+        ids.forEach(cache::evict);
+        return deleted;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  应用其他节点复制来的变更，person为null表示删除。accept在该id的锁内判断是否比本地新，
+     *               返回false时忽略。只失效本地缓存，下次读取时从存储加载，不通知PersonChangeListener
+     **/
+    public boolean applyReplicated(String id, Person person, BooleanSupplier accept) {
+        boolean applied = personIndexes.withLock(id, () -> {
+            if(!accept.getAsBoolean()){
+                return false;
+            }
+            if(person == null){
+                personIndexes.delete(id, personRepository::delete);
+            }else {
+                personIndexes.save(person, personRepository::save);
+            }
+            return true;
+        });
+        if(applied){
+            personCache().evict(id);
         }
-        Person personNew = DATABASES.put(person.getId(), person);
-        return personNew;
+        return applied;
     }
 
+    /**
+     * @Author JackZhou
+     * @Description  按id升序游标分页，直接读存储，不经过缓存
+     **/
+    public PersonPage findPage(String cursor, int limit) {
+        pageCounter.increment();
+        int pageSize = Math.max(1, Math.min(limit, maxBatchSize));
+        List<Person> items = personRepository.findPage(cursor, pageSize);
+        String nextCursor = items.size() < pageSize ? null : items.get(items.size() - 1).getId();
+        return new PersonPage(items, nextCursor);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  按属性查询，params的key为 属性名 或 属性名.操作符(in/gt/gte/lt/lte)，多个条件为AND。
+     *               有索引的条件中选候选最少的一个，其余条件逐条校验；都没有索引时按id顺序全量扫描
+     **/
+    public PersonQueryResult query(Map<String, String> params, int limit) {
+        queryCounter.increment();
+        if(params.isEmpty()){
+            throw new IllegalArgumentException("至少需要一个查询条件");
+        }
+        List<QueryCondition> conditions = params.entrySet().stream()
+                .map(entry -> QueryCondition.parse(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+        int pageSize = Math.max(1, Math.min(limit, maxBatchSize));
+        long start = System.nanoTime();
+        QueryPlan plan = personIndexes.plan(conditions);
+        List<Person> items = new ArrayList<>();
+        long examined = 0;
+        if(plan.isFullScan()){
+            String cursor = null;
+            List<Person> page;
+            do {
+                page = personRepository.findPage(cursor, maxBatchSize);
+                for (Person person : page) {
+                    examined++;
+                    if(matches(person, conditions) && items.add(person) && items.size() >= pageSize){
+                        break;
+                    }
+                }
+                cursor = page.isEmpty() ? null : page.get(page.size() - 1).getId();
+            } while (items.size() < pageSize && page.size() == maxBatchSize);
+        }else {
+            for (String id : (Iterable<String>) plan.candidateIds()::iterator) {
+                Person person = personRepository.get(id);
+                examined++;
+                // 索引可能包含并发写入中的旧值，以存储中的实际值为准
+                if(person != null && matches(person, conditions) && items.add(person) && items.size() >= pageSize){
+                    break;
+                }
+            }
+        }
+        (plan.isFullScan() ? scanQueryTimer : indexQueryTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new PersonQueryResult(items, plan.getName(), examined);
+    }
+
+    private Person saveAndNotify(Person person) {
+        Person old = personRepository.save(person);
+        changeListeners.forEach(listener -> listener.saved(person));
+        return old;
+    }
+
+    private Person deleteAndNotify(String id) {
+        Person old = personRepository.delete(id);
+        changeListeners.forEach(listener -> listener.deleted(id));
+        return old;
+    }
+
+    private static boolean matches(Person person, List<QueryCondition> conditions) {
+        for (QueryCondition condition : conditions) {
+            if(!condition.test(person)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Timer queryTimer(String plan) {
+        return Timer.builder("person.query")
+                .tag("plan", plan)
+                .description("Person属性查询耗时")
+                .register(meterRegistry);
+    }
+
+    private Counter operationCounter(String operation) {
+        return Counter.builder("person.operations")
+                .tag("operation", operation)
+                .description("PersonService操作次数")
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary batchSizeSummary(String operation) {
+        return DistributionSummary.builder("person.batch.size")
+                .tag("operation", operation)
+                .description("PersonService批量操作的数量")
+                .register(meterRegistry);
+    }
+
+    private Cache personCache() {
+        return cacheManager.getCache(PERSON_CACHE);
+    }
+
+    private void checkBatchSize(Collection<?> batch) {
+        if(batch == null || batch.size() > maxBatchSize){
+            throw new IllegalArgumentException("批量操作的数量不可为空且不能超过" + maxBatchSize);
+        }
+    }
 }
@@ -0,0 +1,197 @@
+package com.zhou.demo.ssl.service;
+
+import com.cloud.demo.common.bean.Person;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.zhou.demo.ssl.bean.PersonPage;
+import com.zhou.demo.ssl.bean.TransferStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @ClassName PersonTransferService
+ * @Author JackZhou
+ * @Desc  NDJSON格式的全量导入导出，每行一个person
+ *
+ * 导出按id游标分页读取，每页写完flush一次；导入每攒够一批保存一次，保存完才继续读输入流，
+ * 读取速度受写入速度限制。两者内存占用只和批大小有关，和数据总量无关。
+ * 导入遇到不合法的行时，先保存该行之前已读到的记录，再抛出InvalidLineException，其中带有行号和已导入的条数。
+ **/
+@Slf4j
+@Service
+public class PersonTransferService {
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${person.transfer.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 导入的某一行不是合法的person JSON，之前的行都已保存
+     */
+    public static class InvalidLineException extends IOException {
+        private final long line;
+        private final TransferStats imported;
+
+        InvalidLineException(long line, TransferStats imported, Throwable cause) {
+            super("第" + line + "行不是合法的person JSON，之前的" + imported.getRecords() + "条已导入", cause);
+            this.line = line;
+            this.imported = imported;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public TransferStats getImported() {
+            return imported;
+        }
+    }
+
+    public TransferStats exportTo(OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        CountingOutputStream countingOut = new CountingOutputStream(out);
+        ObjectWriter writer = objectMapper.writerFor(Person.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long records = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(countingOut)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // 默认在根对象之间插入空格，这里自己写换行
+            generator.setRootValueSeparator(null);
+            String cursor = null;
+            do {
+                PersonPage page = personService.findPage(cursor, batchSize);
+                for (Person person : page.getItems()) {
+                    writer.writeValue(generator, person);
+                    generator.writeRaw('\n');
+                    records++;
+                }
+                generator.flush();
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+        }
+        TransferStats stats = new TransferStats(records, countingOut.getCount(), System.currentTimeMillis() - start);
+        log.info("person导出完成 {}", stats);
+        return stats;
+    }
+
+    public TransferStats importFrom(InputStream in) throws IOException {
+        long start = System.currentTimeMillis();
+        CountingInputStream countingIn = new CountingInputStream(in);
+        ObjectReader reader = objectMapper.readerFor(Person.class);
+        long records = 0;
+        List<Person> batch = new ArrayList<>(batchSize);
+        try (MappingIterator<Person> iterator = reader.readValues(countingIn)) {
+            while (iterator.hasNextValue()) {
+                batch.add(iterator.nextValue());
+                if(batch.size() >= batchSize){
+                    personService.saveBatch(batch);
+                    records += batch.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            if(!batch.isEmpty()){
+                personService.saveBatch(batch);
+                records += batch.size();
+            }
+            JsonLocation location = e.getLocation();
+            TransferStats imported = new TransferStats(records, countingIn.getCount(), System.currentTimeMillis() - start);
+            log.warn("person导入在第{}行中断 {}: {}", location == null ? -1 : location.getLineNr(), imported, e.getOriginalMessage());
+            throw new InvalidLineException(location == null ? -1 : location.getLineNr(), imported, e);
+        }
+        if(!batch.isEmpty()){
+            personService.saveBatch(batch);
+            records += batch.size();
+        }
+        TransferStats stats = new TransferStats(records, countingIn.getCount(), System.currentTimeMillis() - start);
+        log.info("person导入完成 {}", stats);
+        return stats;
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b >= 0){
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if(n > 0){
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        // FilterOutputStream默认逐字节写，这里直接整段写给下游
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
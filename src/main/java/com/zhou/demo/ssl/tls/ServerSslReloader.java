@@ -0,0 +1,120 @@
+package com.zhou.demo.ssl.tls;
+
+import com.zhou.demo.ssl.filter.ClientIdentityResolver;
+import com.zhou.demo.ssl.utils.FileWatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.connector.Connector;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.coyote.http11.AbstractHttp11Protocol;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.server.Ssl;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName ServerSslReloader
+ * @Author JackZhou
+ * @Desc  server.ssl的key-store/trust-store文件变化后重新加载Tomcat的SSL配置，不需要重启
+ *
+ * reloadSslHostConfigs只替换新握手使用的SSLContext，已建立的连接不受影响；新证书加载失败时Tomcat保留旧配置。
+ * 重新加载后清空ClientIdentityResolver的缓存，旧trust-store下解析的身份不再沿用到session过期。
+ * 证书在jar包内(classpath:且未解压)时无法监听，只打印日志。耗时记录在指标 tls.reload{side=server}。
+ **/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "tls.reload.enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ServerSslReloader implements ApplicationListener<WebServerInitializedEvent>, DisposableBean {
+
+    private final ServerProperties serverProperties;
+    private final ClientIdentityResolver clientIdentityResolver;
+    private final Timer reloadTimer;
+    private final long debounceMillis;
+    private FileWatcher watcher;
+
+    public ServerSslReloader(ServerProperties serverProperties, ClientIdentityResolver clientIdentityResolver, MeterRegistry meterRegistry,
+                             @Value("${tls.reload.debounce-ms:500}") long debounceMillis) {
+        this.serverProperties = serverProperties;
+        this.clientIdentityResolver = clientIdentityResolver;
+        this.debounceMillis = debounceMillis;
+        this.reloadTimer = Timer.builder("tls.reload")
+                .tag("side", "server")
+                .description("证书重新加载耗时")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(WebServerInitializedEvent event) {
+        WebServer webServer = event.getWebServer();
+        Ssl ssl = serverProperties.getSsl();
+        if(watcher != null || !(webServer instanceof TomcatWebServer) || ssl == null || !ssl.isEnabled()){
+            return;
+        }
+        Set<Path> files = new LinkedHashSet<>();
+        addFile(files, ssl.getKeyStore());
+        addFile(files, ssl.getTrustStore());
+        if(files.isEmpty()){
+            log.info("server.ssl证书不在文件系统上，不监听证书变化");
+            return;
+        }
+        try {
+            watcher = new FileWatcher("server-ssl-reload", files, debounceMillis, () -> reload((TomcatWebServer) webServer)).start();
+        } catch (IOException e) {
+            log.error("监听server.ssl证书文件失败 {}", files, e);
+        }
+    }
+
+    public void reload(TomcatWebServer webServer) {
+        long start = System.nanoTime();
+        for (Connector connector : webServer.getTomcat().getService().findConnectors()) {
+            ProtocolHandler protocolHandler = connector.getProtocolHandler();
+            if(protocolHandler instanceof AbstractHttp11Protocol && ((AbstractHttp11Protocol<?>) protocolHandler).isSSLEnabled()){
+                ((AbstractHttp11Protocol<?>) protocolHandler).reloadSslHostConfigs();
+                log.info("端口{} SSL证书已重新加载", connector.getPort());
+            }
+        }
+        clientIdentityResolver.invalidateAll();
+        long elapsed = System.nanoTime() - start;
+        reloadTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("server.ssl证书重新加载耗时{}ms", TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException {
+        if(watcher != null){
+            watcher.close();
+        }
+    }
+
+    private static void addFile(Set<Path> files, String location) {
+        if(!StringUtils.hasText(location)){
+            return;
+        }
+        try {
+            File file = ResourceUtils.getFile(location);
+            if(file.isFile()){
+                files.add(file.toPath());
+            }
+        } catch (IOException e) {
+            log.debug("{} 不是文件系统上的文件", location);
+        }
+    }
+}
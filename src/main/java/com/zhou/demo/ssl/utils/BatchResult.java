@@ -0,0 +1,39 @@
+package com.zhou.demo.ssl.utils;
+
+import lombok.Getter;
+import lombok.ToString;
+import okhttp3.Request;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName BatchResult
+ * @Author JackZhou
+ * @Desc  批量请求中单个请求的结果，失败时error不为空
+ **/
+@Getter
+@ToString(exclude = "body")
+public class BatchResult {
+
+    private final Request request;
+    private final int code;
+    private final String body;
+    private final Throwable error;
+    private final long latencyNanos;
+
+    BatchResult(Request request, int code, String body, Throwable error, long latencyNanos) {
+        this.request = request;
+        this.code = code;
+        this.body = body;
+        this.error = error;
+        this.latencyNanos = latencyNanos;
+    }
+
+    public boolean isSuccess(){
+        return error == null && code >= 200 && code < 300;
+    }
+
+    public long getLatencyMillis(){
+        return TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+    }
+}
@@ -1,9 +1,13 @@
 package com.zhou.demo.ssl.utils;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 /**
  * @ClassName FileUtils
@@ -12,19 +16,25 @@ import java.io.IOException;
  **/
 public class FileUtils {
 
+    /**
+     * @Author JackZhou
+     * @Description  读取整个文件，文件不存在或读取失败直接抛出IOException
+     **/
     public static String readFile(String fileName) throws IOException {
-        File file = new File(fileName);
-        Long filelength = file.length();
-        byte[] filecontent = new byte[filelength.intValue()];
-        try {
-            FileInputStream in = new FileInputStream(file);
-            in.read(filecontent);
-            in.close();
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
+        return new String(readBytes(Paths.get(fileName)), StandardCharsets.UTF_8);
+    }
+
+    public static byte[] readBytes(Path file) throws IOException {
+        return Files.readAllBytes(file);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  只读方式内存映射整个文件，映射建立后channel即可关闭
+     **/
+    public static MappedByteBuffer mapFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
         }
-        return new String(filecontent);
     }
 }
@@ -0,0 +1,107 @@
+package com.zhou.demo.ssl.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName FileWatcher
+ * @Author JackZhou
+ * @Desc  监听一组文件的创建和修改，变化后等待debounceMillis内没有新变化再回调一次
+ *
+ * 证书轮换通常会连续写多个文件(证书、私钥)，防抖可以避免在文件只写了一半时重新加载。
+ * 监听的是文件所在目录，覆盖写和先写临时文件再改名两种更新方式都能感知。
+ **/
+@Slf4j
+public class FileWatcher implements Closeable {
+
+    private final String name;
+    private final Set<Path> files = new HashSet<>();
+    private final long debounceMillis;
+    private final Runnable onChange;
+    private final WatchService watchService;
+
+    public FileWatcher(String name, Collection<Path> files, long debounceMillis, Runnable onChange) throws IOException {
+        this.name = name;
+        this.debounceMillis = debounceMillis;
+        this.onChange = onChange;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new HashSet<>();
+        for (Path file : files) {
+            Path absolute = file.toAbsolutePath().normalize();
+            this.files.add(absolute);
+            directories.add(absolute.getParent());
+        }
+        for (Path directory : directories) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+    }
+
+    public FileWatcher start() {
+        Thread thread = new Thread(this::watch, name);
+        thread.setDaemon(true);
+        thread.start();
+        log.info("{} 开始监听文件 {}", name, files);
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = drain(key);
+                // 防抖：持续有变化时一直等待
+                while (true) {
+                    WatchKey next = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                    if(next == null){
+                        break;
+                    }
+                    changed |= drain(next);
+                }
+                if(changed){
+                    try {
+                        onChange.run();
+                    } catch (Exception e) {
+                        log.error("{} 处理文件变化失败", name, e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.info("{} 停止监听", name);
+        }
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW){
+                changed = true;
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            changed |= files.contains(file);
+        }
+        key.reset();
+        return changed;
+    }
+}
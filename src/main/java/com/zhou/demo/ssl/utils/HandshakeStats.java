@@ -0,0 +1,46 @@
+package com.zhou.demo.ssl.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @ClassName HandshakeStats
+ * @Author JackZhou
+ * @Desc  TLS握手计数，full为完整握手，abbreviated为复用session的简化握手，twoWay为双向认证
+ *
+ * unknown为无法判断是否复用的握手：服务端TLS 1.3复用session(PSK)时session id会变化，按session id无法区分
+ **/
+public class HandshakeStats {
+
+    // 下标：twoWay * 2 + resumed
+    private final AtomicLongArray counts = new AtomicLongArray(4);
+    // 下标：twoWay
+    private final AtomicLongArray unknown = new AtomicLongArray(2);
+
+    public void record(boolean resumed, boolean twoWay){
+        counts.incrementAndGet(index(resumed, twoWay));
+    }
+
+    public void recordUnknown(boolean twoWay){
+        unknown.incrementAndGet(twoWay ? 1 : 0);
+    }
+
+    public long get(boolean resumed, boolean twoWay){
+        return counts.get(index(resumed, twoWay));
+    }
+
+    public long getUnknown(boolean twoWay){
+        return unknown.get(twoWay ? 1 : 0);
+    }
+
+    public long getFull(){
+        return get(false, false) + get(false, true);
+    }
+
+    public long getAbbreviated(){
+        return get(true, false) + get(true, true);
+    }
+
+    private static int index(boolean resumed, boolean twoWay){
+        return (twoWay ? 2 : 0) + (resumed ? 1 : 0);
+    }
+}
@@ -1,6 +1,7 @@
 package com.zhou.demo.ssl.utils;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StreamUtils;
 import org.springframework.util.StringUtils;
 
 import javax.net.ssl.KeyManagerFactory;
@@ -10,13 +11,17 @@ import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
 import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * @ClassName JksClientCredentials
@@ -34,6 +39,7 @@ public class JksClientCredentials {
 
     private String caCertContent;
     private FileInputStream clientJksStream;
+    private byte[] clientJksContent;
     private String keyStorePass;
 
     public JksClientCredentials(String caCertContent, FileInputStream clientJksStream, String keyStorePass) {
@@ -43,30 +49,57 @@ public class JksClientCredentials {
     }
 
     public static class SSLParams {
+        public SSLContext sslContext;
         public SSLSocketFactory sSLSocketFactory;
         public X509TrustManager trustManager;
     }
 
+    /**
+     * @Author JackZhou
+     * @Description  相同的ca证书和jks内容共享同一个SSLContext，见SslContextRegistry
+     **/
     public JksClientCredentials.SSLParams getSSLParams(){
-        try {
-            // 1、通过证书得到TrustManagerFactory
-            createAndInitTrustManagerFactory();
-            //2、如果客户端证书和私钥存在，得到KeyManagerFactory
-            createAndInitKeyManagerFactory();
-            //3、Okhttp取消了，单参数方法，返回多参数用于Okhttp初始化
-            JksClientCredentials.SSLParams sslParams = new JksClientCredentials.SSLParams();
-            //得到ssl上下文
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(keyManagerFactory == null ? null : keyManagerFactory.getKeyManagers(), trustManagerFactory.getTrustManagers(), new SecureRandom());
-            sslParams.trustManager = getX509TrustManager();
-            sslParams.sSLSocketFactory = sslContext.getSocketFactory();
-            return sslParams;
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-        } catch (KeyManagementException e) {
-            e.printStackTrace();
+        //Okhttp取消了，单参数方法，返回多参数用于Okhttp初始化
+        SslContextRegistry.Entry entry = SslContextRegistry.getOrCreate(fingerprint(), this::createSslContext);
+        JksClientCredentials.SSLParams sslParams = new JksClientCredentials.SSLParams();
+        sslParams.sslContext = entry.sslContext;
+        sslParams.trustManager = entry.trustManager;
+        sslParams.sSLSocketFactory = entry.sSLSocketFactory;
+        return sslParams;
+    }
+
+    public String fingerprint(){
+        return SslContextRegistry.fingerprint("jks".getBytes(StandardCharsets.UTF_8),
+                caCertContent == null ? null : caCertContent.getBytes(StandardCharsets.UTF_8),
+                getClientJksContent(),
+                keyStorePass == null ? null : keyStorePass.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private SslContextRegistry.Entry createSslContext() throws NoSuchAlgorithmException, KeyManagementException {
+        // 1、通过证书得到TrustManagerFactory
+        createAndInitTrustManagerFactory();
+        //2、如果客户端证书和私钥存在，得到KeyManagerFactory
+        createAndInitKeyManagerFactory();
+        //3、得到ssl上下文
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory == null ? null : keyManagerFactory.getKeyManagers(), trustManagerFactory.getTrustManagers(), new SecureRandom());
+        return new SslContextRegistry.Entry(sslContext, getX509TrustManager());
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  jks流只能读一次，读出后缓存字节，用于计算指纹和加载KeyStore
+     **/
+    private byte[] getClientJksContent(){
+        if(clientJksContent == null && clientJksStream != null){
+            try (FileInputStream in = clientJksStream) {
+                clientJksContent = StreamUtils.copyToByteArray(in);
+            } catch (IOException e) {
+                log.error("读取客户端jks失败", e);
+                throw new RuntimeException(e);
+            }
         }
-        return null;
+        return clientJksContent;
     }
 
     /**
@@ -80,13 +113,9 @@ public class JksClientCredentials {
             throw new IllegalArgumentException("服务端证书不可为空");
         }
         try {
-            KeyStore caKeyStore = KeyStore.getInstance(KeyStore.getDefaultType());
-            caKeyStore.load(null, null);
-            Certificate certificate = getCertificate(caCertContent);
-            caKeyStore.setCertificateEntry(CA_CRT_ALIAS, certificate);
-            //初始化trustManagerFactory
+            //初始化trustManagerFactory，CA bundle中的证书全部信任
             trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
-            trustManagerFactory.init(caKeyStore);
+            trustManagerFactory.init(PemClientCredentials.trustStore(getCertificates(caCertContent)));
         } catch (Exception e) {
             log.error("初始化TrustManagerFactory失败,证书内容{}", caCertContent, e);
             throw new RuntimeException(e);
@@ -96,7 +125,7 @@ public class JksClientCredentials {
     private void createAndInitKeyManagerFactory(){
         try{
             KeyStore clientKeyStore = KeyStore.getInstance(KeyStore.getDefaultType());
-            clientKeyStore.load(clientJksStream, keyStorePass.toCharArray());
+            clientKeyStore.load(new ByteArrayInputStream(getClientJksContent()), keyStorePass.toCharArray());
             keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
             keyManagerFactory.init(clientKeyStore, keyStorePass.toCharArray());
         }catch (Exception e){
@@ -105,10 +134,18 @@ public class JksClientCredentials {
         }
     }
 
-    private Certificate getCertificate(String content) throws CertificateException {
-        CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
-        Certificate certificate = certificateFactory.generateCertificate(new ByteArrayInputStream(content.getBytes()));
-        return  certificate;
+    /**
+     * @Author JackZhou
+     * @Description  PEM内容交给PemReader解析，没有PEM块时按DER证书处理
+     **/
+    private List<X509Certificate> getCertificates(String content) throws CertificateException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        List<X509Certificate> certificates = PemReader.certificates(PemReader.read(bytes));
+        if(certificates.isEmpty()){
+            CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+            certificates = Collections.singletonList((X509Certificate) certificateFactory.generateCertificate(new ByteArrayInputStream(bytes)));
+        }
+        return certificates;
     }
 
     private X509TrustManager getX509TrustManager(){
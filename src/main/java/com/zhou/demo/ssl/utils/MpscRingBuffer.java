@@ -0,0 +1,80 @@
+package com.zhou.demo.ssl.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @ClassName MpscRingBuffer
+ * @Author JackZhou
+ * @Desc  有界无锁环形队列，多生产者单消费者
+ *
+ * 每个槽位带一个序号：生产者CAS抢占tail后写入元素，再把序号推进到pos+1表示可读；
+ * 消费者读出元素后把序号推进到pos+capacity表示可写。队列满时offer直接返回false，不阻塞生产者。
+ **/
+public class MpscRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // 只有消费者线程读写
+    private long head;
+
+    /**
+     * @param capacity 容量，向上取整为2的幂
+     */
+    public MpscRingBuffer(int capacity) {
+        if(capacity < 2 || capacity > (1 << 30)){
+            throw new IllegalArgumentException("容量必须在2到2^30之间: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  入队，队列满时返回false，可多线程调用
+     **/
+    public boolean offer(E element) {
+        while (true) {
+            long pos = tail.get();
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if(diff == 0){
+                if(tail.compareAndSet(pos, pos + 1)){
+                    buffer.lazySet(index, element);
+                    sequences.lazySet(index, pos + 1);
+                    return true;
+                }
+            }else if(diff < 0){
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  出队，队列为空时返回null，只能由一个消费者线程调用
+     **/
+    public E poll() {
+        int index = (int) head & mask;
+        if(sequences.get(index) != head + 1){
+            return null;
+        }
+        E element = buffer.get(index);
+        buffer.lazySet(index, null);
+        sequences.lazySet(index, head + mask + 1);
+        head++;
+        return element;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,150 @@
+package com.zhou.demo.ssl.utils;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.X509TrustManager;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName OkhttpClientFactory
+ * @Author JackZhou
+ * @Desc  OkHttpClient工厂
+ *
+ * 所有client共享同一个ConnectionPool和Dispatcher，按(证书、hostname校验、超时)缓存client。
+ * ConnectionPool按Address区分连接，Address包含SSLSocketFactory，不同证书的连接不会混用，
+ * 相同证书的请求可以复用已经握手完成的keep-alive连接。
+ * 服务端通过ALPN协商出h2时，同一主机的并发请求复用同一条连接。
+ **/
+@Slf4j
+public class OkhttpClientFactory {
+
+    private static final ConcurrentMap<ClientOptions, OkHttpClient> CLIENTS = new ConcurrentHashMap<>();
+
+    private static volatile OkHttpClient baseClient = createBaseClient(PoolConfig.builder().build());
+
+    /**
+     * 连接池和调度器配置，executor为空时使用Okhttp默认的线程池
+     */
+    @Value
+    @Builder
+    public static class PoolConfig {
+        @Builder.Default
+        private int maxIdleConnections = 32;
+        @Builder.Default
+        private long keepAliveMillis = TimeUnit.MINUTES.toMillis(5);
+        @Builder.Default
+        private int maxRequests = 128;
+        @Builder.Default
+        private int maxRequestsPerHost = 32;
+        private ExecutorService executor;
+    }
+
+    /**
+     * client的缓存key，sslSocketFactory为空时使用系统默认证书
+     * protocols为空时使用Okhttp默认的[h2, http/1.1]，明文h2c使用[H2_PRIOR_KNOWLEDGE]
+     */
+    @Value
+    @Builder
+    public static class ClientOptions {
+        private SSLSocketFactory sslSocketFactory;
+        private X509TrustManager trustManager;
+        private HostnameVerifier hostnameVerifier;
+        private List<Protocol> protocols;
+        @Builder.Default
+        private long connectTimeoutMillis = 10_000;
+        @Builder.Default
+        private long readTimeoutMillis = 6_000;
+        @Builder.Default
+        private long writeTimeoutMillis = 10_000;
+    }
+
+    public static final ClientOptions DEFAULT_OPTIONS = ClientOptions.builder().build();
+
+    /**
+     * @Author JackZhou
+     * @Description  重新配置连接池和调度器，已缓存的client会被丢弃，旧连接池中的空闲连接被关闭
+     **/
+    public static synchronized void configure(PoolConfig poolConfig){
+        OkHttpClient oldClient = baseClient;
+        baseClient = createBaseClient(poolConfig);
+        CLIENTS.clear();
+        oldClient.connectionPool().evictAll();
+        log.info("Okhttp连接池已重新配置 {}", poolConfig);
+    }
+
+    public static OkHttpClient getClient(){
+        return getClient(DEFAULT_OPTIONS);
+    }
+
+    public static OkHttpClient getClient(ClientOptions options){
+        OkHttpClient client = CLIENTS.get(options);
+        if(client != null){
+            return client;
+        }
+        return CLIENTS.computeIfAbsent(options, OkhttpClientFactory::createClient);
+    }
+
+    public static OkHttpClient getClient(SSLSocketFactory sslSocketFactory, X509TrustManager trustManager, HostnameVerifier hostnameVerifier){
+        return getClient(ClientOptions.builder()
+                .sslSocketFactory(sslSocketFactory)
+                .trustManager(trustManager)
+                .hostnameVerifier(hostnameVerifier)
+                .build());
+    }
+
+    public static ConnectionPool connectionPool(){
+        return baseClient.connectionPool();
+    }
+
+    public static Dispatcher dispatcher(){
+        return baseClient.dispatcher();
+    }
+
+    public static int clientCount(){
+        return CLIENTS.size();
+    }
+
+    private static OkHttpClient createClient(ClientOptions options){
+        OkHttpClient.Builder builder = baseClient.newBuilder()
+                .connectTimeout(options.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(options.getReadTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .writeTimeout(options.getWriteTimeoutMillis(), TimeUnit.MILLISECONDS);
+        if(options.getSslSocketFactory() != null){
+            if(options.getTrustManager() == null){
+                throw new IllegalArgumentException("设置sslSocketFactory时trustManager不可为空");
+            }
+            builder.sslSocketFactory(options.getSslSocketFactory(), options.getTrustManager());
+        }
+        if(options.getHostnameVerifier() != null){
+            builder.hostnameVerifier(options.getHostnameVerifier());
+        }
+        if(options.getProtocols() != null){
+            builder.protocols(options.getProtocols());
+        }
+        return builder.build();
+    }
+
+    private static OkHttpClient createBaseClient(PoolConfig poolConfig){
+        Dispatcher dispatcher = poolConfig.getExecutor() == null ? new Dispatcher() : new Dispatcher(poolConfig.getExecutor());
+        dispatcher.setMaxRequests(poolConfig.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(poolConfig.getMaxRequestsPerHost());
+        ConnectionPool connectionPool = new ConnectionPool(poolConfig.getMaxIdleConnections(), poolConfig.getKeepAliveMillis(), TimeUnit.MILLISECONDS);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(connectionPool)
+                .eventListenerFactory(OkhttpMetricsListener.FACTORY)
+                .build();
+    }
+}
@@ -0,0 +1,174 @@
+package com.zhou.demo.ssl.utils;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName OkhttpMetricsListener
+ * @Author JackZhou
+ * @Desc  Okhttp客户端调用的分阶段耗时和TLS握手统计
+ *
+ * okhttp.call.phase{phase=dns|connect|tls|ttfb|body}：各阶段耗时，connect只含TCP建连，ttfb为开始发送请求到收到响应头
+ * okhttp.call{outcome=success|failure}：整个调用的耗时
+ * tls.handshake{side=client, auth=one-way|two-way, type=full|abbreviated}：握手耗时，同时计入CLIENT_STATS
+ *
+ * 复用session时SSLSession的创建时间是最初完整握手的时间，早于本次握手开始时间，以此区分两种握手。
+ * 复用连接池中已有连接的请求不建连也不握手，只记录ttfb、body和整个调用。
+ * 指标注册在Metrics.globalRegistry，Spring Boot的MeterRegistry会自动加入其中。
+ **/
+public class OkhttpMetricsListener extends EventListener {
+
+    public static final HandshakeStats CLIENT_STATS = new HandshakeStats();
+
+    public static final EventListener.Factory FACTORY = call -> new OkhttpMetricsListener();
+
+    private static final Timer DNS = phaseTimer("dns");
+    private static final Timer CONNECT = phaseTimer("connect");
+    private static final Timer TLS = phaseTimer("tls");
+    private static final Timer TTFB = phaseTimer("ttfb");
+    private static final Timer BODY = phaseTimer("body");
+
+    private static final Timer CALL_SUCCESS = callTimer("success");
+    private static final Timer CALL_FAILURE = callTimer("failure");
+
+    // 下标：twoWay * 2 + resumed
+    private static final Timer[] HANDSHAKES = {
+            handshakeTimer("one-way", "full"), handshakeTimer("one-way", "abbreviated"),
+            handshakeTimer("two-way", "full"), handshakeTimer("two-way", "abbreviated")
+    };
+
+    private long callStartNanos;
+    private long dnsStartNanos;
+    private long connectStartNanos;
+    private long secureConnectStartNanos;
+    private long secureConnectStartMillis = -1;
+    private long handshakeNanos = -1;
+    private long requestStartNanos = -1;
+    private long responseBodyStartNanos;
+
+    private static Timer phaseTimer(String phase) {
+        return Timer.builder("okhttp.call.phase")
+                .tag("phase", phase)
+                .description("Okhttp调用各阶段耗时")
+                .register(Metrics.globalRegistry);
+    }
+
+    private static Timer callTimer(String outcome) {
+        return Timer.builder("okhttp.call")
+                .tag("outcome", outcome)
+                .description("Okhttp调用耗时")
+                .register(Metrics.globalRegistry);
+    }
+
+    private static Timer handshakeTimer(String auth, String type) {
+        return Timer.builder("tls.handshake")
+                .tags("side", "client", "auth", auth, "type", type)
+                .description("TLS握手耗时")
+                .register(Metrics.globalRegistry);
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        DNS.record(System.nanoTime() - dnsStartNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        secureConnectStartNanos = System.nanoTime();
+        secureConnectStartMillis = System.currentTimeMillis();
+        CONNECT.record(secureConnectStartNanos - connectStartNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        handshakeNanos = System.nanoTime() - secureConnectStartNanos;
+        TLS.record(handshakeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        if(secureConnectStartMillis < 0){
+            CONNECT.record(System.nanoTime() - connectStartNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        if(handshakeNanos < 0){
+            return;
+        }
+        Socket socket = connection.socket();
+        if(socket instanceof SSLSocket){
+            SSLSession session = ((SSLSocket) socket).getSession();
+            boolean resumed = session.getCreationTime() < secureConnectStartMillis;
+            boolean twoWay = session.getLocalCertificates() != null;
+            CLIENT_STATS.record(resumed, twoWay);
+            HANDSHAKES[(twoWay ? 2 : 0) + (resumed ? 1 : 0)].record(handshakeNanos, TimeUnit.NANOSECONDS);
+        }
+        handshakeNanos = -1;
+        secureConnectStartMillis = -1;
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        requestStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        if(requestStartNanos >= 0){
+            TTFB.record(System.nanoTime() - requestStartNanos, TimeUnit.NANOSECONDS);
+            requestStartNanos = -1;
+        }
+    }
+
+    @Override
+    public void responseBodyStart(Call call) {
+        responseBodyStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        BODY.record(System.nanoTime() - responseBodyStartNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        CALL_SUCCESS.record(System.nanoTime() - callStartNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        CALL_FAILURE.record(System.nanoTime() - callStartNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -1,6 +1,17 @@
 package com.zhou.demo.ssl.utils;
 
+import com.cloud.demo.common.bean.Person;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zhou.demo.ssl.utils.resilience.HttpResult;
+import com.zhou.demo.ssl.utils.resilience.ResiliencePolicy;
+import com.zhou.demo.ssl.utils.resilience.ResilientExecutor;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
 import okhttp3.FormBody;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
@@ -9,17 +20,24 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
 import org.springframework.util.StringUtils;
 
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * @ClassName SimpleOkhttpUtils
@@ -28,61 +46,320 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class OkhttpUtils {
 
-   private static OkHttpClient okHttpClient = new OkHttpClient.Builder().readTimeout(6, TimeUnit.SECONDS).build();
-
    private static final MediaType JSON = MediaType.parse("application/json");
 
+   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+           .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+   private static final String RESULT_FIELD = "result";
+
    private static final String MEDIATYPE_NONE = "none";
    private static final String MEDIATYPE_JSON = "application/json";
    private static final String MEDIATYPE_FORM = "form-data";
    private static final String MEDIATYPE_FORM_URLENCODED = "application/x-www-form-urlencoded";
 
+   private static volatile ResilientExecutor resilientExecutor = new ResilientExecutor(ResiliencePolicy.builder().build());
+
    public static OkHttpClient getInstance(){
-       return okHttpClient;
+       return OkhttpClientFactory.getClient();
    }
 
+    /**
+     * @Author JackZhou
+     * @Description  替换execRequestResult/execPostRequestResult使用的重试、对冲和熔断配置，熔断状态和重试预算重新开始
+     **/
+    public static void configureResilience(ResiliencePolicy policy){
+        resilientExecutor = new ResilientExecutor(policy);
+    }
+
+    public static ResilientExecutor resilientExecutor(){
+        return resilientExecutor;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  执行get请求，带熔断、重试和对冲，结果中区分超时、连不上、握手失败和服务端错误
+     **/
+    public static HttpResult execRequestResult(String url, Map<String, String> headers, OkHttpClient execClient){
+        return resilientExecutor.execute(buildRequest(url, headers).build(), execClient == null ? getInstance() : execClient);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  执行post请求，post不是幂等的，只在建连失败(请求未发出)时重试
+     **/
+    public static HttpResult execPostRequestResult(String url, Map<String, String> headers, RequestBody requestBody, OkHttpClient execClient){
+        return resilientExecutor.execute(buildRequest(url, headers).post(requestBody).build(), execClient == null ? getInstance() : execClient);
+    }
+
     /**
       * @Author JackZhou
-      * @Description  执行get请求
+      * @Description  执行get请求，经过execRequestResult(熔断、重试)，返回最后一次响应的body，没有收到响应时返回null；
+      *               需要区分失败原因时直接使用execRequestResult
      **/
     public static String execRequest(String url, Map<String, String> headers, OkHttpClient execClient){
+        return bodyOrNull(url, execRequestResult(url, headers, execClient));
+    }
 
+    /**
+     * @Author JackZhou
+     * @Description  执行post请求，经过execPostRequestResult，返回值同execRequest
+     **/
+    public static String execPostRequest(String url, Map<String, String> headers, RequestBody requestBody, OkHttpClient execClient){
+        return bodyOrNull(url, execPostRequestResult(url, headers, requestBody, execClient));
+    }
+
+    private static String bodyOrNull(String url, HttpResult result){
+        if(result.getCode() == 0){
+            // 堆栈只在debug级别输出
+            log.warn("执行http请求出错,地址:{},{},尝试{}次", url, result.getError(), result.getAttempts());
+            log.debug("执行http请求出错,地址:{}", url, result.getError().getCause());
+            return null;
+        }
+        return result.getBody();
+    }
+
+    /**
+     * 流式处理响应体，handler返回后响应一定会被关闭，连接归还连接池
+     */
+    @FunctionalInterface
+    public interface StreamHandler<T> {
+        T handle(BufferedSource source) throws IOException;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  流式执行请求，不把响应体读成String，非2xx状态码抛出IOException
+     **/
+    public static <T> T execStream(Request request, OkHttpClient execClient, StreamHandler<T> handler) throws IOException {
         if(execClient == null){
-            execClient = okHttpClient;
+            execClient = getInstance();
         }
-        Request.Builder requestBuilder = new Request.Builder().url(url);
-        if(headers != null && headers.size() >0 ){
-            headers.entrySet().stream().forEach(entry -> requestBuilder.header(entry.getKey(), entry.getValue()));
+        try (Response response = execClient.newCall(request).execute()) {
+            if(!response.isSuccessful()){
+                throw new IOException("http请求失败,状态码:" + response.code() + ",地址:" + request.url());
+            }
+            return handler.handle(response.body().source());
         }
-        Request request = requestBuilder.build();
-        try {
-            Response response = execClient.newCall(request).execute();
-            return  response.body().string();
-        } catch (IOException e) {
-            log.info("执行http请求出错,地址:{}", url, e);
+    }
+
+    public static <T> T execStreamRequest(String url, Map<String, String> headers, OkHttpClient execClient, StreamHandler<T> handler) throws IOException {
+        return execStream(buildRequest(url, headers).build(), execClient, handler);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  以InputStream方式消费响应体
+     **/
+    public static void execInputStreamRequest(String url, Map<String, String> headers, OkHttpClient execClient, Consumer<InputStream> consumer) throws IOException {
+        execStreamRequest(url, headers, execClient, source -> {
+            consumer.accept(source.inputStream());
             return null;
+        });
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  下载响应体到文件，先写临时文件再改名，内存占用固定，返回写入的字节数；失败时删除临时文件
+     **/
+    public static long downloadToFile(String url, Map<String, String> headers, OkHttpClient execClient, File target) throws IOException {
+        File partFile = new File(target.getPath() + ".part");
+        try {
+            long bytes = execStreamRequest(url, headers, execClient, source -> {
+                try (BufferedSink sink = Okio.buffer(Okio.sink(partFile))) {
+                    return sink.writeAll(source);
+                }
+            });
+            Files.move(partFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return bytes;
+        } finally {
+            // 改名成功后临时文件已不存在
+            Files.deleteIfExists(partFile.toPath());
         }
     }
 
     /**
      * @Author JackZhou
-     * @Description  执行post请求
+     * @Description  增量解析Person列表，支持[...]数组和WebResponse的{"result":[...]}格式，
+     *               每解析出一个Person就回调一次，返回解析的个数
      **/
-    public static String execPostRequest(String url, Map<String, String> headers, RequestBody requestBody, OkHttpClient execClient){
+    public static long streamPersons(String url, Map<String, String> headers, OkHttpClient execClient, Consumer<Person> consumer) throws IOException {
+        return execStreamRequest(url, headers, execClient, source -> {
+            try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(source.inputStream())) {
+                JsonToken token = parser.nextToken();
+                if(token == JsonToken.START_ARRAY){
+                    return readPersonArray(parser, consumer);
+                }
+                if(token != JsonToken.START_OBJECT){
+                    throw new IOException("不支持的响应格式:" + token);
+                }
+                long count = 0;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String fieldName = parser.getCurrentName();
+                    token = parser.nextToken();
+                    if(RESULT_FIELD.equals(fieldName) && token == JsonToken.START_ARRAY){
+                        count += readPersonArray(parser, consumer);
+                    }else {
+                        parser.skipChildren();
+                    }
+                }
+                return count;
+            }
+        });
+    }
+
+    private static long readPersonArray(JsonParser parser, Consumer<Person> consumer) throws IOException {
+        long count = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            consumer.accept(OBJECT_MAPPER.readValue(parser, Person.class));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  共享连接池中正在使用(未归还)的连接数，所有请求结束后仍大于0说明有响应没有关闭
+     **/
+    public static int inUseConnections(){
+        ConnectionPool connectionPool = OkhttpClientFactory.connectionPool();
+        return connectionPool.connectionCount() - connectionPool.idleConnectionCount();
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  异步执行get请求，不占用调用方线程
+     **/
+    public static CompletableFuture<String> execRequestAsync(String url, Map<String, String> headers, OkHttpClient execClient){
+        return execAsync(buildRequest(url, headers).build(), execClient);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  异步执行post请求，不占用调用方线程
+     **/
+    public static CompletableFuture<String> execPostRequestAsync(String url, Map<String, String> headers, RequestBody requestBody, OkHttpClient execClient){
+        return execAsync(buildRequest(url, headers).post(requestBody).build(), execClient);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  基于Call.enqueue异步执行，非2xx状态码以IOException异常完成，future被取消时同时取消请求
+     **/
+    public static CompletableFuture<String> execAsync(Request request, OkHttpClient execClient){
+        if(execClient == null){
+            execClient = getInstance();
+        }
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Call call = execClient.newCall(request);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody body = response.body()) {
+                    // 和execStream一致，非2xx状态码视为失败
+                    if(!response.isSuccessful()){
+                        future.completeExceptionally(new IOException("http请求失败,状态码:" + response.code() + ",地址:" + request.url()));
+                        return;
+                    }
+                    future.complete(body.string());
+                } catch (IOException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        future.whenComplete((result, e) -> {
+            if(future.isCancelled()){
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  批量并发执行请求，同时在途的请求数不超过maxConcurrency，
+     *               结果顺序与requests一致，单个请求失败不影响其他请求
+     **/
+    public static CompletableFuture<List<BatchResult>> execBatch(List<Request> requests, OkHttpClient execClient, int maxConcurrency){
+        if(maxConcurrency <= 0){
+            throw new IllegalArgumentException("maxConcurrency必须大于0");
+        }
         if(execClient == null){
-            execClient = okHttpClient;
+            execClient = getInstance();
         }
+        BatchExecution execution = new BatchExecution(requests, execClient);
+        for (int i = 0; i < Math.min(maxConcurrency, requests.size()); i++) {
+            execution.launchNext();
+        }
+        if(requests.isEmpty()){
+            execution.future.complete(Collections.emptyList());
+        }
+        return execution.future;
+    }
+
+    private static Request.Builder buildRequest(String url, Map<String, String> headers){
         Request.Builder requestBuilder = new Request.Builder().url(url);
         if(headers != null && headers.size() >0 ){
             headers.entrySet().stream().forEach(entry -> requestBuilder.header(entry.getKey(), entry.getValue()));
         }
-        Request request = requestBuilder.post(requestBody).build();
-        try {
-            Response response = execClient.newCall(request).execute();
-            return  response.body().string();
-        } catch (IOException e) {
-            log.info("执行http请求出错,地址:{}", url, e);
-            return null;
+        return requestBuilder;
+    }
+
+    /**
+     * 一个请求完成后再发起下一个，以此限制并发
+     */
+    private static class BatchExecution {
+        private final List<Request> requests;
+        private final OkHttpClient client;
+        private final BatchResult[] results;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final CompletableFuture<List<BatchResult>> future = new CompletableFuture<>();
+
+        BatchExecution(List<Request> requests, OkHttpClient client) {
+            this.requests = requests;
+            this.client = client;
+            this.results = new BatchResult[requests.size()];
+            this.remaining = new AtomicInteger(requests.size());
+        }
+
+        void launchNext(){
+            int index = next.getAndIncrement();
+            if(index >= requests.size() || future.isDone()){
+                return;
+            }
+            Request request = requests.get(index);
+            long start = System.nanoTime();
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    complete(index, new BatchResult(request, -1, null, e, System.nanoTime() - start));
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try (ResponseBody body = response.body()) {
+                        String content = body.string();
+                        complete(index, new BatchResult(request, response.code(), content, null, System.nanoTime() - start));
+                    } catch (IOException e) {
+                        complete(index, new BatchResult(request, response.code(), null, e, System.nanoTime() - start));
+                    }
+                }
+            });
+        }
+
+        private void complete(int index, BatchResult result){
+            results[index] = result;
+            if(remaining.decrementAndGet() == 0){
+                // decrementAndGet保证了results的可见性
+                future.complete(Arrays.asList(results));
+            }else {
+                launchNext();
+            }
         }
     }
 
@@ -127,100 +404,4 @@ public class OkhttpUtils {
         }
         return builder.build().toString();
     }
-
-    public static void testOneWayAllHttps(String url){
-        try {
-            // 方式1  过期
-//            OkHttpClient client = okHttpClient.newBuilder().
-//                    sslSocketFactory(ClientCredentials.createSSLSocketFactory())
-//                    .hostnameVerifier( (a,b) -> true).build();  // 校验hostname，返回true
-            // 方式2
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            TrustAllCerts trustAllCerts = new TrustAllCerts();
-            sslContext.init(null, new TrustManager[]{trustAllCerts}, new SecureRandom());
-            // sslContext初始化 TrustManager 为什么必须填  unable to find valid certification path to requested target
-            //sslContext.init(null, null, new SecureRandom());
-            OkHttpClient client = okHttpClient.newBuilder().
-                    sslSocketFactory(sslContext.getSocketFactory(),  trustAllCerts)
-                    .hostnameVerifier( (a,b) -> true).build();  // 校验hostname，返回true
-
-            Request request = new Request.Builder().url(url).get().build();
-            Response response = client.newCall(request).execute();
-            System.out.println(response.body().string());
-        } catch (IOException e) {
-            e.printStackTrace();
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-        } catch (KeyManagementException e) {
-            e.printStackTrace();
-        }
-    }
-
-    public static void testOneWayHttps(){
-        try {
-            String caCertContent = FileUtils.readFile("src/main/resources/httpsClient/ca.crt");
-            PemClientCredentials credentials = new PemClientCredentials(caCertContent, null, null);
-            PemClientCredentials.SSLParams sslParams = credentials.getSSLParams();
-            OkHttpClient client = okHttpClient.newBuilder().
-                    sslSocketFactory(sslParams.sSLSocketFactory, sslParams.trustManager)
-                    .hostnameVerifier( (a,b) -> true).build();  // 校验hostname，返回true
-            Request request = new Request.Builder().url("https://aa.test.com:11001/demo/bootswagger/person/123").get().build();
-            Response response = client.newCall(request).execute();
-            System.out.println(response.body().string());
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    public static void testTwoWayHttps(){
-        try {
-            // ca和server 证书都行
-            String caCertContent = FileUtils.readFile("src/main/resources/httpsClient/ca.crt");
-            //String caCertContent = FileUtils.readFile("src/main/resources/httpsClient/server.crt");
-            String clientCertContent = FileUtils.readFile("src/main/resources/httpsClient/client.crt");
-            String clientKeyContent = FileUtils.readFile("src/main/resources/httpsClient/target_pkcs8_privatekey.key");
-            //String clientKeyContent = FileUtils.readFile("src/main/resources/httpsClient/client.key");
-            PemClientCredentials credentials = new PemClientCredentials(caCertContent, clientKeyContent, clientCertContent);
-            PemClientCredentials.SSLParams sslParams = credentials.getSSLParams();
-            OkHttpClient client = okHttpClient.newBuilder().
-                    sslSocketFactory(sslParams.sSLSocketFactory, sslParams.trustManager)
-                    .hostnameVerifier( (a,b) -> true).build();  // 校验hostname，返回true
-            Request request = new Request.Builder().url("https://aa.test.com:11001/demo/bootswagger/person/123").get().build();
-            Response response = client.newCall(request).execute();
-            System.out.println(response.body().string());
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-
-    // JKS双向验证方式成功
-    public static void testTwoWayHttpsJks(){
-        try {
-            String caCertContent = FileUtils.readFile("src/main/resources/httpsClient/ca.crt");
-            String clientJksfilePath = "src/main/resources/httpsClient/client.jks";
-            JksClientCredentials jksClientCredentials = new JksClientCredentials(caCertContent, new FileInputStream(clientJksfilePath), "123456");
-            JksClientCredentials.SSLParams sslParams = jksClientCredentials.getSSLParams();
-            OkHttpClient client = okHttpClient.newBuilder().
-                    sslSocketFactory(sslParams.sSLSocketFactory, sslParams.trustManager)
-                    .hostnameVerifier( (a,b) -> true).build();  // 校验hostname，返回true
-            Request request = new Request.Builder().url("https://aa.test.com:11001/demo/bootswagger/person/123").get().build();
-            Response response = client.newCall(request).execute();
-            System.out.println(response.body().string());
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    public static void main(String[] args) {
-        String url = "https://aa.test.com:11001/demo/bootswagger/person/123";
-        //单向验证
-        //testOneWayAllHttps("https://www.baidu.com/");
-         //testOneWayAllHttps(url);
-        //testOneWayHttps();
-
-        // 双向验证
-        //testTwoWayHttps();
-        //testTwoWayHttpsJks();
-    }
-}
\ No newline at end of file
+}
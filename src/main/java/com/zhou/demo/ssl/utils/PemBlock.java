@@ -0,0 +1,36 @@
+package com.zhou.demo.ssl.utils;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * @ClassName PemBlock
+ * @Author JackZhou
+ * @Desc  PEM文件中的一段 -----BEGIN label----- ... -----END label-----，der为base64解码后的内容
+ **/
+@Getter
+@ToString(exclude = "der")
+public class PemBlock {
+
+    public static final String CERTIFICATE = "CERTIFICATE";
+    public static final String PRIVATE_KEY = "PRIVATE KEY";
+    public static final String RSA_PRIVATE_KEY = "RSA PRIVATE KEY";
+    public static final String EC_PRIVATE_KEY = "EC PRIVATE KEY";
+    public static final String ENCRYPTED_PRIVATE_KEY = "ENCRYPTED PRIVATE KEY";
+
+    private final String label;
+    private final byte[] der;
+
+    PemBlock(String label, byte[] der) {
+        this.label = label;
+        this.der = der;
+    }
+
+    public boolean isCertificate(){
+        return CERTIFICATE.equals(label);
+    }
+
+    public boolean isPrivateKey(){
+        return label.endsWith(PRIVATE_KEY);
+    }
+}
@@ -0,0 +1,308 @@
+package com.zhou.demo.ssl.utils;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1Primitive;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.asn1.pkcs.RSAPrivateKey;
+import org.bouncycastle.asn1.sec.ECPrivateKey;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.spec.KeySpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPrivateCrtKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @ClassName PemReader
+ * @Author JackZhou
+ * @Desc  PEM解析，直接在ByteBuffer(堆内数组或内存映射文件)上查找BEGIN/END标记并解码base64
+ *
+ * 不把文件内容转成String，也不做replace/正则，每个块只分配一次结果数组(先数base64字符个数再解码)。
+ * 一个文件中可以有多个块：证书链、CA bundle、证书和私钥放在同一个文件都可以，块之外的文字(如openssl -text输出)忽略。
+ * 私钥支持PKCS#8(PRIVATE KEY，RSA/EC/DSA)、PKCS#1(RSA PRIVATE KEY)、SEC1(EC PRIVATE KEY)，不支持加密私钥。
+ **/
+public class PemReader {
+
+    private static final byte[] BEGIN = ascii("-----BEGIN ");
+    private static final byte[] END = ascii("-----END ");
+    private static final byte[] DASHES = ascii("-----");
+
+    private static final String[] KNOWN_LABELS = {PemBlock.CERTIFICATE, PemBlock.PRIVATE_KEY,
+            PemBlock.RSA_PRIVATE_KEY, PemBlock.EC_PRIVATE_KEY, PemBlock.ENCRYPTED_PRIVATE_KEY};
+
+    private static final byte INVALID = -1;
+    private static final byte WHITESPACE = -2;
+    private static final byte[] DECODE = new byte[256];
+
+    static {
+        Arrays.fill(DECODE, INVALID);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE[alphabet.charAt(i)] = (byte) i;
+        }
+        DECODE[' '] = WHITESPACE;
+        DECODE['\t'] = WHITESPACE;
+        DECODE['\r'] = WHITESPACE;
+        DECODE['\n'] = WHITESPACE;
+    }
+
+    public static List<PemBlock> read(byte[] content){
+        if(content == null || content.length == 0){
+            return Collections.emptyList();
+        }
+        return read(ByteBuffer.wrap(content));
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  内存映射读取文件，适合较大的CA bundle
+     **/
+    public static List<PemBlock> readFile(Path file) throws IOException {
+        return read(FileUtils.mapFile(file));
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  解析buffer中position到limit之间的所有PEM块，使用绝对下标读取，不改变buffer的position
+     **/
+    public static List<PemBlock> read(ByteBuffer buffer){
+        List<PemBlock> blocks = new ArrayList<>(2);
+        int limit = buffer.limit();
+        int pos = buffer.position();
+        while (true) {
+            int begin = indexOf(buffer, BEGIN, pos, limit);
+            if(begin < 0){
+                return blocks;
+            }
+            int labelStart = begin + BEGIN.length;
+            int labelEnd = indexOf(buffer, DASHES, labelStart, lineEnd(buffer, labelStart, limit));
+            if(labelEnd < 0){
+                throw new IllegalArgumentException("PEM起始标记不完整,位置" + begin);
+            }
+            String label = label(buffer, labelStart, labelEnd);
+            int bodyStart = labelEnd + DASHES.length;
+            int end = indexOf(buffer, END, bodyStart, limit);
+            int endLabelStart = end + END.length;
+            int endDashes = endLabelStart + label.length();
+            if(end < 0 || endDashes + DASHES.length > limit
+                    || !matches(label, buffer, endLabelStart) || indexOf(buffer, DASHES, endDashes, endDashes + DASHES.length) < 0){
+                throw new IllegalArgumentException("缺少 -----END " + label + "-----");
+            }
+            if(PemBlock.ENCRYPTED_PRIVATE_KEY.equals(label)){
+                throw new IllegalArgumentException("不支持加密的私钥，请先用openssl pkcs8 -nocrypt转换");
+            }
+            blocks.add(new PemBlock(label, decodeBase64(buffer, bodyStart, end)));
+            pos = endDashes + DASHES.length;
+        }
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  所有CERTIFICATE块按顺序解析成证书，其他块忽略
+     **/
+    public static List<X509Certificate> certificates(List<PemBlock> blocks) throws CertificateException {
+        List<X509Certificate> certificates = new ArrayList<>(blocks.size());
+        CertificateFactory certFactory = null;
+        for (PemBlock block : blocks) {
+            if(!block.isCertificate()){
+                continue;
+            }
+            if(certFactory == null){
+                certFactory = CertificateFactory.getInstance("X.509");
+            }
+            certificates.add((X509Certificate) certFactory.generateCertificate(new ByteArrayInputStream(block.getDer())));
+        }
+        return certificates;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  返回第一个私钥块，没有私钥块时返回null
+     **/
+    public static PrivateKey privateKey(List<PemBlock> blocks) throws GeneralSecurityException, IOException {
+        for (PemBlock block : blocks) {
+            if(block.isPrivateKey()){
+                return privateKey(block);
+            }
+        }
+        return null;
+    }
+
+    public static PrivateKey privateKey(PemBlock block) throws GeneralSecurityException, IOException {
+        byte[] der = block.getDer();
+        switch (block.getLabel()) {
+            case PemBlock.PRIVATE_KEY:
+                ASN1ObjectIdentifier algorithm = PrivateKeyInfo.getInstance(der).getPrivateKeyAlgorithm().getAlgorithm();
+                return KeyFactory.getInstance(keyAlgorithm(algorithm)).generatePrivate(new PKCS8EncodedKeySpec(der));
+            case PemBlock.RSA_PRIVATE_KEY:
+                return KeyFactory.getInstance("RSA").generatePrivate(rsaKeySpec(RSAPrivateKey.getInstance(der)));
+            case PemBlock.EC_PRIVATE_KEY:
+                ECPrivateKey ecKey = ECPrivateKey.getInstance(der);
+                ASN1Primitive curve = ecKey.getParameters();
+                if(curve == null){
+                    throw new IllegalArgumentException("EC私钥中没有曲线参数");
+                }
+                PrivateKeyInfo keyInfo = new PrivateKeyInfo(new AlgorithmIdentifier(X9ObjectIdentifiers.id_ecPublicKey, curve), ecKey);
+                return KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(keyInfo.getEncoded()));
+            default:
+                throw new IllegalArgumentException("不支持的私钥类型 " + block.getLabel());
+        }
+    }
+
+    private static String keyAlgorithm(ASN1ObjectIdentifier algorithm){
+        if(PKCSObjectIdentifiers.rsaEncryption.equals(algorithm)){
+            return "RSA";
+        }
+        if(X9ObjectIdentifiers.id_ecPublicKey.equals(algorithm)){
+            return "EC";
+        }
+        if(X9ObjectIdentifiers.id_dsa.equals(algorithm)){
+            return "DSA";
+        }
+        throw new IllegalArgumentException("不支持的私钥算法 " + algorithm);
+    }
+
+    private static KeySpec rsaKeySpec(RSAPrivateKey key){
+        return new RSAPrivateCrtKeySpec(key.getModulus(), key.getPublicExponent(), key.getPrivateExponent(),
+                key.getPrime1(), key.getPrime2(), key.getExponent1(), key.getExponent2(), key.getCoefficient());
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  解码[from, to)之间的base64，忽略空白(兼容CRLF)，出现':'的行说明带有Proc-Type等头部(旧式加密私钥)
+     **/
+    private static byte[] decodeBase64(ByteBuffer buffer, int from, int to){
+        int chars = 0;
+        int padding = 0;
+        for (int i = from; i < to; i++) {
+            int c = buffer.get(i) & 0xff;
+            byte value = DECODE[c];
+            if(value >= 0){
+                if(padding > 0){
+                    throw new IllegalArgumentException("base64填充字符之后还有数据");
+                }
+                chars++;
+            } else if(c == '='){
+                padding++;
+            } else if(value != WHITESPACE){
+                // Proc-Type头部中的'-'先于':'出现，按整行判断
+                if(contains(buffer, (byte) ':', i, lineEnd(buffer, i, to))){
+                    throw new IllegalArgumentException("不支持带头部的PEM块(如Proc-Type加密私钥)");
+                }
+                throw new IllegalArgumentException("非法的base64字符 0x" + Integer.toHexString(c));
+            }
+        }
+        int tail = chars & 3;
+        if(tail == 1 || padding > 2){
+            throw new IllegalArgumentException("base64长度不正确");
+        }
+        byte[] out = new byte[(chars >> 2) * 3 + (tail == 0 ? 0 : tail - 1)];
+        int n = 0;
+        int acc = 0;
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            byte value = DECODE[buffer.get(i) & 0xff];
+            if(value < 0){
+                continue;
+            }
+            acc = (acc << 6) | value;
+            if(++count == 4){
+                out[n++] = (byte) (acc >> 16);
+                out[n++] = (byte) (acc >> 8);
+                out[n++] = (byte) acc;
+                acc = 0;
+                count = 0;
+            }
+        }
+        if(count == 2){
+            out[n] = (byte) (acc >> 4);
+        } else if(count == 3){
+            out[n++] = (byte) (acc >> 10);
+            out[n] = (byte) (acc >> 2);
+        }
+        return out;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  常见标签直接返回常量，不新建String
+     **/
+    private static String label(ByteBuffer buffer, int from, int to){
+        for (String known : KNOWN_LABELS) {
+            if(known.length() == to - from && matches(known, buffer, from)){
+                return known;
+            }
+        }
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static boolean matches(String text, ByteBuffer buffer, int from){
+        for (int i = 0; i < text.length(); i++) {
+            if(buffer.get(from + i) != text.charAt(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte[] pattern, int from, int to){
+        byte first = pattern[0];
+        int last = to - pattern.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            if(buffer.get(i) != first){
+                continue;
+            }
+            for (int j = 1; j < pattern.length; j++) {
+                if(buffer.get(i + j) != pattern[j]){
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static boolean contains(ByteBuffer buffer, byte b, int from, int to){
+        for (int i = from; i < to; i++) {
+            if(buffer.get(i) == b){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int lineEnd(ByteBuffer buffer, int from, int limit){
+        for (int i = from; i < limit; i++) {
+            byte b = buffer.get(i);
+            if(b == '\n' || b == '\r'){
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    private static byte[] ascii(String text){
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
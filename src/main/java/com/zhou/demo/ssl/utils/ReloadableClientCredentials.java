@@ -0,0 +1,217 @@
+package com.zhou.demo.ssl.utils;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.X509TrustManager;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @ClassName ReloadableClientCredentials
+ * @Author JackZhou
+ * @Desc  证书文件变化后自动重新加载的客户端证书
+ *
+ * 对外提供固定的SSLSocketFactory和X509TrustManager，内部委托给当前证书对应的实例，重新加载时原子替换。
+ * 因为对外实例不变，OkhttpClientFactory缓存的client不用重建；已建立的连接继续使用旧证书直到关闭，
+ * 新连接使用新证书。重新加载后会关闭连接池中的空闲连接，使后续请求尽快用上新证书。
+ * 每次重新加载的耗时记录在指标 tls.reload{side=client}。
+ **/
+@Slf4j
+public class ReloadableClientCredentials implements Closeable {
+
+    private static final Timer RELOAD_TIMER = Timer.builder("tls.reload")
+            .tag("side", "client")
+            .description("证书重新加载耗时")
+            .register(Metrics.globalRegistry);
+
+    private final Path[] files;
+    private final CredentialsLoader loader;
+    private final AtomicReference<Loaded> current = new AtomicReference<>();
+    private final DelegatingSocketFactory socketFactory = new DelegatingSocketFactory();
+    private final DelegatingTrustManager trustManager = new DelegatingTrustManager();
+    private FileWatcher watcher;
+
+    @FunctionalInterface
+    private interface CredentialsLoader {
+        Loaded load() throws IOException;
+    }
+
+    private static class Loaded {
+        final String fingerprint;
+        final SSLSocketFactory socketFactory;
+        final X509TrustManager trustManager;
+
+        Loaded(String fingerprint, SSLSocketFactory socketFactory, X509TrustManager trustManager) {
+            this.fingerprint = fingerprint;
+            this.socketFactory = socketFactory;
+            this.trustManager = trustManager;
+        }
+    }
+
+    private ReloadableClientCredentials(CredentialsLoader loader, Path... files) throws IOException {
+        this.loader = loader;
+        this.files = files;
+        current.set(loader.load());
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  pem证书，clientKey和clientCert为空时为单向认证
+     **/
+    public static ReloadableClientCredentials pem(Path caCert, Path clientKey, Path clientCert) throws IOException {
+        CredentialsLoader loader = () -> {
+            PemClientCredentials credentials = PemClientCredentials.fromFiles(caCert, clientKey, clientCert);
+            PemClientCredentials.SSLParams sslParams = credentials.getSSLParams();
+            return new Loaded(credentials.fingerprint(), sslParams.sSLSocketFactory, sslParams.trustManager);
+        };
+        return clientKey == null ? new ReloadableClientCredentials(loader, caCert) : new ReloadableClientCredentials(loader, caCert, clientKey, clientCert);
+    }
+
+    public static ReloadableClientCredentials jks(Path caCert, Path clientJks, String keyStorePass) throws IOException {
+        CredentialsLoader loader = () -> {
+            JksClientCredentials credentials = new JksClientCredentials(FileUtils.readFile(caCert.toString()),
+                    new FileInputStream(clientJks.toFile()), keyStorePass);
+            JksClientCredentials.SSLParams sslParams = credentials.getSSLParams();
+            return new Loaded(credentials.fingerprint(), sslParams.sSLSocketFactory, sslParams.trustManager);
+        };
+        return new ReloadableClientCredentials(loader, caCert, clientJks);
+    }
+
+    public SSLSocketFactory getSslSocketFactory() {
+        return socketFactory;
+    }
+
+    public X509TrustManager getTrustManager() {
+        return trustManager;
+    }
+
+    public OkHttpClient client(HostnameVerifier hostnameVerifier) {
+        return OkhttpClientFactory.getClient(socketFactory, trustManager, hostnameVerifier);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  开始监听证书文件，变化后自动重新加载
+     **/
+    public synchronized ReloadableClientCredentials watch(long debounceMillis) throws IOException {
+        if(watcher == null){
+            watcher = new FileWatcher("client-ssl-reload", Arrays.asList(files), debounceMillis, this::reload).start();
+        }
+        return this;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  重新读取证书文件，内容没有变化时不替换，加载失败时保留旧证书
+     **/
+    public void reload() {
+        long start = System.nanoTime();
+        Loaded loaded;
+        try {
+            loaded = loader.load();
+        } catch (Exception e) {
+            log.error("重新加载客户端证书失败，继续使用旧证书 {}", Arrays.toString(files), e);
+            return;
+        }
+        Loaded previous = current.getAndSet(loaded);
+        if(previous.fingerprint.equals(loaded.fingerprint)){
+            return;
+        }
+        SslContextRegistry.invalidate(previous.fingerprint);
+        OkhttpClientFactory.connectionPool().evictAll();
+        long elapsed = System.nanoTime() - start;
+        RELOAD_TIMER.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("客户端证书已重新加载 {}，耗时{}ms", Arrays.toString(files), TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(watcher != null){
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    private class DelegatingSocketFactory extends SSLSocketFactory {
+
+        private SSLSocketFactory delegate() {
+            return current.get().socketFactory;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate().getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate().getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+            return delegate().createSocket(socket, host, port, autoClose);
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return delegate().createSocket();
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return delegate().createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return delegate().createSocket(host, port, localHost, localPort);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return delegate().createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return delegate().createSocket(address, port, localAddress, localPort);
+        }
+    }
+
+    private class DelegatingTrustManager implements X509TrustManager {
+
+        private X509TrustManager delegate() {
+            return current.get().trustManager;
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            delegate().checkClientTrusted(chain, authType);
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            delegate().checkServerTrusted(chain, authType);
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return delegate().getAcceptedIssuers();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.zhou.demo.ssl.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.X509TrustManager;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ClassName SslContextRegistry
+ * @Author JackZhou
+ * @Desc  SSLContext注册表，按证书/私钥内容的指纹缓存
+ *
+ * 同一份证书材料只解析一次，所有调用方共享同一个SSLContext和SSLSocketFactory，
+ * 也就共享同一个客户端session缓存，后续连接可以复用TLS session。
+ * session缓存大小和超时通过configureSessionCache设置。
+ **/
+@Slf4j
+public class SslContextRegistry {
+
+    private static final ConcurrentMap<String, Entry> CONTEXTS = new ConcurrentHashMap<>();
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private static final byte[] NULL_PART = new byte[]{(byte) 0xff};
+
+    private static volatile int sessionCacheSize = 20480;
+    private static volatile int sessionTimeoutSeconds = 86400;
+
+    public static class Entry {
+        public final SSLContext sslContext;
+        public final SSLSocketFactory sSLSocketFactory;
+        public final X509TrustManager trustManager;
+
+        public Entry(SSLContext sslContext, X509TrustManager trustManager) {
+            sslContext.getClientSessionContext().setSessionCacheSize(sessionCacheSize);
+            sslContext.getClientSessionContext().setSessionTimeout(sessionTimeoutSeconds);
+            this.sslContext = sslContext;
+            this.sSLSocketFactory = sslContext.getSocketFactory();
+            this.trustManager = trustManager;
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryLoader {
+        Entry load() throws Exception;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  指纹存在直接返回，不存在时调用loader创建，同一指纹只会创建一次
+     **/
+    public static Entry getOrCreate(String fingerprint, EntryLoader loader){
+        Entry entry = CONTEXTS.get(fingerprint);
+        if(entry != null){
+            HITS.incrementAndGet();
+            return entry;
+        }
+        return CONTEXTS.computeIfAbsent(fingerprint, key -> {
+            MISSES.incrementAndGet();
+            try {
+                return loader.load();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("初始化SSLContext失败,指纹{}", key, e);
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  计算证书材料的SHA-256指纹，每部分带长度前缀，null和空串可区分
+     **/
+    public static String fingerprint(byte[]... parts){
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer length = ByteBuffer.allocate(4);
+        for (byte[] part : parts) {
+            if(part == null){
+                digest.update(NULL_PART);
+                continue;
+            }
+            length.clear();
+            digest.update(length.putInt(part.length).array());
+            digest.update(part);
+        }
+        byte[] hash = digest.digest();
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    public static String fingerprint(String... parts){
+        byte[][] bytes = new byte[parts.length][];
+        for (int i = 0; i < parts.length; i++) {
+            bytes[i] = parts[i] == null ? null : parts[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return fingerprint(bytes);
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  客户端session缓存的大小和超时(秒)，0表示不限制
+     **/
+    public static void configureSessionCache(int cacheSize, int timeoutSeconds){
+        sessionCacheSize = cacheSize;
+        sessionTimeoutSeconds = timeoutSeconds;
+        for (Entry entry : CONTEXTS.values()) {
+            entry.sslContext.getClientSessionContext().setSessionCacheSize(cacheSize);
+            entry.sslContext.getClientSessionContext().setSessionTimeout(timeoutSeconds);
+        }
+    }
+
+    public static void invalidate(String fingerprint){
+        CONTEXTS.remove(fingerprint);
+    }
+
+    public static void clear(){
+        CONTEXTS.clear();
+    }
+
+    public static long hitCount(){
+        return HITS.get();
+    }
+
+    public static long missCount(){
+        return MISSES.get();
+    }
+
+    public static int size(){
+        return CONTEXTS.size();
+    }
+}
@@ -4,6 +4,9 @@ import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLSession;
 
 public class TrustAllHostnameVerifier implements HostnameVerifier {
+
+    public static final TrustAllHostnameVerifier INSTANCE = new TrustAllHostnameVerifier();
+
     @Override
     public boolean verify(String hostname, SSLSession session) {
         return true;
@@ -0,0 +1,120 @@
+package com.zhou.demo.ssl.utils.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName CircuitBreaker
+ * @Author JackZhou
+ * @Desc  按调用次数滑动窗口统计失败率的熔断器
+ *
+ * CLOSED：正常放行，窗口内失败率达到阈值后OPEN；OPEN：直接拒绝，openMillis后进入HALF_OPEN；
+ * HALF_OPEN：放行halfOpenCalls个试探请求，全部成功则CLOSED，任一失败则重新OPEN。
+ * CLOSED状态下tryAcquire只读一次volatile，不加锁；记录结果时加锁。
+ **/
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRate;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    private volatile State state = State.CLOSED;
+    private int position;
+    private int calls;
+    private int failures;
+    private long openUntilNanos;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRate, long openMillis, int halfOpenCalls) {
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRate = failureRate;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * @Author JackZhou
+     * @Description  是否允许发出请求，允许时调用方必须随后调用onSuccess或onFailure
+     **/
+    public boolean tryAcquire() {
+        if(state == State.CLOSED){
+            return true;
+        }
+        synchronized (this) {
+            if(state == State.OPEN){
+                if(System.nanoTime() - openUntilNanos < 0){
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                halfOpenPermits = halfOpenCalls;
+                halfOpenSuccesses = 0;
+            }
+            if(state == State.HALF_OPEN){
+                if(halfOpenPermits == 0){
+                    return false;
+                }
+                halfOpenPermits--;
+            }
+            return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if(state == State.HALF_OPEN){
+            if(++halfOpenSuccesses >= halfOpenCalls){
+                reset();
+            }
+        }else if(state == State.CLOSED){
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if(state == State.HALF_OPEN){
+            open();
+        }else if(state == State.CLOSED){
+            record(true);
+            if(calls >= minimumCalls && failures >= failureRate * calls){
+                open();
+            }
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if(calls == window.length){
+            if(window[position]){
+                failures--;
+            }
+        }else {
+            calls++;
+        }
+        window[position] = failure;
+        if(failure){
+            failures++;
+        }
+        position = (position + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntilNanos = System.nanoTime() + openNanos;
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        position = 0;
+        calls = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,68 @@
+package com.zhou.demo.ssl.utils.resilience;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+/**
+ * @ClassName HttpError
+ * @Author JackZhou
+ * @Desc  请求失败的原因，区分连不上、握手失败、超时、服务端错误和被熔断拒绝
+ **/
+@Getter
+@ToString(exclude = "cause")
+public class HttpError {
+
+    public enum Type {
+        // 熔断打开，没有发出请求
+        CIRCUIT_OPEN,
+        // 建连失败，请求没有发出
+        CONNECT_FAILED,
+        // TLS握手或证书、主机名校验失败
+        TLS_FAILED,
+        TIMEOUT,
+        // 服务端返回了5xx等可重试的状态码
+        HTTP_STATUS,
+        IO_ERROR
+    }
+
+    private final Type type;
+    private final String message;
+    private final Throwable cause;
+
+    HttpError(Type type, String message, Throwable cause) {
+        this.type = type;
+        this.message = message;
+        this.cause = cause;
+    }
+
+    static HttpError of(Throwable e) {
+        Type type;
+        if(e instanceof ConnectException || e instanceof UnknownHostException || e instanceof NoRouteToHostException){
+            type = Type.CONNECT_FAILED;
+        }else if(e instanceof SSLHandshakeException || e instanceof SSLPeerUnverifiedException){
+            // 握手之后的SSLException(如Connection reset)是普通的IO错误，按IO_ERROR处理可以重试
+            type = Type.TLS_FAILED;
+        }else if(e instanceof SocketTimeoutException || (e instanceof InterruptedIOException && "timeout".equals(e.getMessage()))){
+            type = Type.TIMEOUT;
+        }else {
+            type = Type.IO_ERROR;
+        }
+        return new HttpError(type, e.toString(), e);
+    }
+
+    static HttpError status(int code) {
+        return new HttpError(Type.HTTP_STATUS, "http状态码" + code, null);
+    }
+
+    static HttpError circuitOpen(String host) {
+        return new HttpError(Type.CIRCUIT_OPEN, host + " 熔断中", null);
+    }
+}
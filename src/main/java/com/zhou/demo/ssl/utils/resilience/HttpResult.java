@@ -0,0 +1,40 @@
+package com.zhou.demo.ssl.utils.resilience;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName HttpResult
+ * @Author JackZhou
+ * @Desc  ResilientExecutor的执行结果，error为空且状态码2xx时成功；收到响应时code和body为最后一次响应的内容
+ **/
+@Getter
+@ToString(exclude = "body")
+public class HttpResult {
+
+    private final int code;
+    private final String body;
+    private final HttpError error;
+    private final int attempts;
+    private final boolean hedged;
+    private final long latencyNanos;
+
+    HttpResult(int code, String body, HttpError error, int attempts, boolean hedged, long latencyNanos) {
+        this.code = code;
+        this.body = body;
+        this.error = error;
+        this.attempts = attempts;
+        this.hedged = hedged;
+        this.latencyNanos = latencyNanos;
+    }
+
+    public boolean isSuccess() {
+        return error == null && code >= 200 && code < 300;
+    }
+
+    public long getLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+    }
+}
@@ -0,0 +1,55 @@
+package com.zhou.demo.ssl.utils.resilience;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @ClassName LatencyTracker
+ * @Author JackZhou
+ * @Desc  保存最近的请求耗时样本，用于计算对冲请求的延迟阈值
+ *
+ * 分位值每记录RECOMPUTE_INTERVAL个样本重新计算一次，读取时不排序。
+ **/
+class LatencyTracker {
+
+    private static final int SAMPLES = 512;
+    private static final int RECOMPUTE_INTERVAL = 32;
+
+    private final double percentile;
+    private final AtomicLongArray samples = new AtomicLongArray(SAMPLES);
+    private final AtomicLong count = new AtomicLong();
+    private volatile long percentileNanos = -1;
+
+    LatencyTracker(double percentile) {
+        this.percentile = percentile;
+    }
+
+    void record(long latencyNanos) {
+        long n = count.getAndIncrement();
+        samples.set((int) (n % SAMPLES), latencyNanos);
+        if((n + 1) % RECOMPUTE_INTERVAL == 0){
+            recompute((int) Math.min(n + 1, SAMPLES));
+        }
+    }
+
+    long count() {
+        return count.get();
+    }
+
+    /**
+     * 样本不足RECOMPUTE_INTERVAL个时返回-1
+     */
+    long percentileNanos() {
+        return percentileNanos;
+    }
+
+    private void recompute(int size) {
+        long[] copy = new long[size];
+        for (int i = 0; i < size; i++) {
+            copy[i] = samples.get(i);
+        }
+        Arrays.sort(copy);
+        percentileNanos = copy[Math.min(size - 1, (int) (percentile * size))];
+    }
+}
@@ -0,0 +1,72 @@
+package com.zhou.demo.ssl.utils.resilience;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @ClassName ResiliencePolicy
+ * @Author JackZhou
+ * @Desc  ResilientExecutor的配置：重试、重试预算、对冲请求和熔断
+ **/
+@Value
+@Builder
+public class ResiliencePolicy {
+
+    private static final Set<Integer> DEFAULT_RETRY_STATUSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(502, 503, 504)));
+
+    // 单次调用(含读响应体)的总超时
+    @Builder.Default
+    private long callTimeoutMillis = 10_000;
+
+    // 含第一次在内的最大尝试次数
+    @Builder.Default
+    private int maxAttempts = 3;
+    @Builder.Default
+    private long initialBackoffMillis = 50;
+    @Builder.Default
+    private long maxBackoffMillis = 2_000;
+    @Builder.Default
+    private double backoffMultiplier = 2.0;
+    // 幂等请求遇到这些状态码时重试，不配置时为502、503、504
+    @Singular
+    private Set<Integer> retryStatuses;
+
+    // 每个请求存入的重试额度，0.2表示重试量最多为请求量的20%
+    @Builder.Default
+    private double retryBudgetRatio = 0.2;
+    // 请求很少时每秒至少允许的重试次数
+    @Builder.Default
+    private int retryBudgetMinPerSecond = 10;
+
+    // GET请求超过该主机延迟的hedgePercentile分位仍未返回时，再发一个相同请求，先返回的生效
+    @Builder.Default
+    private boolean hedgeEnabled = false;
+    @Builder.Default
+    private double hedgePercentile = 0.95;
+    // 样本数不足时不对冲
+    @Builder.Default
+    private int hedgeMinSamples = 50;
+
+    // 熔断：最近breakerWindowSize次调用中失败率达到breakerFailureRate时打开
+    @Builder.Default
+    private int breakerWindowSize = 50;
+    @Builder.Default
+    private int breakerMinimumCalls = 20;
+    @Builder.Default
+    private double breakerFailureRate = 0.5;
+    @Builder.Default
+    private long breakerOpenMillis = 10_000;
+    // 半开状态放行的试探请求数，全部成功后关闭
+    @Builder.Default
+    private int breakerHalfOpenCalls = 3;
+
+    public Set<Integer> effectiveRetryStatuses() {
+        return retryStatuses.isEmpty() ? DEFAULT_RETRY_STATUSES : retryStatuses;
+    }
+}
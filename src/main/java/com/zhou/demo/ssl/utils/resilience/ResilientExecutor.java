@@ -0,0 +1,337 @@
+package com.zhou.demo.ssl.utils.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName ResilientExecutor
+ * @Author JackZhou
+ * @Desc  带熔断、重试预算和对冲请求的同步请求执行器，结果为HttpResult，不抛异常也不返回null
+ *
+ * 1、按主机(host:port)熔断，熔断打开时直接返回CIRCUIT_OPEN
+ * 2、建连失败总是重试；超时、IO错误和retryStatuses状态码只对幂等方法重试；TLS失败不重试。
+ *    指数退避加随机抖动，每次重试消耗全局RetryBudget，预算不足时不再重试
+ * 3、开启hedgeEnabled时，GET请求超过该主机延迟分位仍未返回，再发一个相同请求，先返回的生效，另一个取消。
+ *    主请求在调用线程上同步执行，不经过Dispatcher排队，计时从真正发出开始。对冲请求同样消耗重试预算
+ * 指标 okhttp.resilience{event=retry|hedge|circuit_rejected|budget_exhausted}
+ **/
+@Slf4j
+public class ResilientExecutor {
+
+    private static final Counter RETRIES = eventCounter("retry");
+    private static final Counter HEDGES = eventCounter("hedge");
+    private static final Counter CIRCUIT_REJECTED = eventCounter("circuit_rejected");
+    private static final Counter BUDGET_EXHAUSTED = eventCounter("budget_exhausted");
+
+    // 到延迟分位时发出对冲请求，任务只调用enqueue，不阻塞
+    private static final ScheduledExecutorService HEDGE_TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "okhttp-hedge-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ResiliencePolicy policy;
+    private final RetryBudget retryBudget;
+    private final ConcurrentMap<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    private class HostState {
+        final CircuitBreaker breaker = new CircuitBreaker(policy.getBreakerWindowSize(), policy.getBreakerMinimumCalls(),
+                policy.getBreakerFailureRate(), policy.getBreakerOpenMillis(), policy.getBreakerHalfOpenCalls());
+        final LatencyTracker latency = new LatencyTracker(policy.getHedgePercentile());
+    }
+
+    /**
+     * 一次尝试的结果，error不为空时没有收到响应
+     */
+    private static class Outcome {
+        final int code;
+        final String body;
+        final IOException error;
+        final long latencyNanos;
+        // 是否由对冲请求返回
+        final boolean hedged;
+
+        Outcome(int code, String body, IOException error, long latencyNanos) {
+            this(code, body, error, latencyNanos, false);
+        }
+
+        Outcome(int code, String body, IOException error, long latencyNanos, boolean hedged) {
+            this.code = code;
+            this.body = body;
+            this.error = error;
+            this.latencyNanos = latencyNanos;
+            this.hedged = hedged;
+        }
+
+        boolean isServerHealthy() {
+            return error == null && code < 500;
+        }
+    }
+
+    public ResilientExecutor(ResiliencePolicy policy) {
+        this.policy = policy;
+        this.retryBudget = new RetryBudget(policy.getRetryBudgetRatio(), policy.getRetryBudgetMinPerSecond(),
+                Math.max(100, policy.getRetryBudgetMinPerSecond() * 10));
+    }
+
+    private static Counter eventCounter(String event) {
+        return Counter.builder("okhttp.resilience")
+                .tag("event", event)
+                .register(Metrics.globalRegistry);
+    }
+
+    public HttpResult execute(Request request, OkHttpClient client) {
+        long start = System.nanoTime();
+        HostState host = hosts.computeIfAbsent(hostKey(request.url()), key -> new HostState());
+        boolean idempotent = isIdempotent(request.method());
+        retryBudget.deposit();
+        boolean hedged = false;
+        Outcome outcome = null;
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            if(!host.breaker.tryAcquire()){
+                CIRCUIT_REJECTED.increment();
+                return result(outcome, HttpError.circuitOpen(hostKey(request.url())), attempt - 1, hedged, start);
+            }
+            boolean hedge = policy.isHedgeEnabled() && "GET".equals(request.method())
+                    && host.latency.count() >= policy.getHedgeMinSamples() && host.latency.percentileNanos() > 0;
+            outcome = hedge ? executeHedged(request, client, host) : executeOnce(request, client);
+            hedged |= outcome.hedged;
+            if(outcome.isServerHealthy()){
+                host.breaker.onSuccess();
+                host.latency.record(outcome.latencyNanos);
+            }else {
+                host.breaker.onFailure();
+            }
+            HttpError error = error(outcome);
+            if(error == null || attempt >= policy.getMaxAttempts() || !isRetryable(error, idempotent)){
+                return result(outcome, error, attempt, hedged, start);
+            }
+            if(!retryBudget.tryWithdraw()){
+                BUDGET_EXHAUSTED.increment();
+                return result(outcome, error, attempt, hedged, start);
+            }
+            RETRIES.increment();
+            if(!sleep(backoffMillis(attempt))){
+                return result(outcome, error, attempt, hedged, start);
+            }
+        }
+    }
+
+    public CircuitBreaker.State circuitState(String hostAndPort) {
+        HostState host = hosts.get(hostAndPort);
+        return host == null ? CircuitBreaker.State.CLOSED : host.breaker.getState();
+    }
+
+    public double retryBudgetAvailable() {
+        return retryBudget.available();
+    }
+
+    private Outcome executeOnce(Request request, OkHttpClient client) {
+        return executeCall(newCall(request, client), System.nanoTime());
+    }
+
+    private static Outcome executeCall(Call call, long start) {
+        try (Response response = call.execute()) {
+            ResponseBody body = response.body();
+            return new Outcome(response.code(), body == null ? null : body.string(), null, System.nanoTime() - start);
+        } catch (IOException e) {
+            return new Outcome(0, null, e, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 对冲执行：主请求在调用线程上execute，定时器到延迟分位时主请求仍未返回则enqueue对冲请求。
+     * 主请求如果经过enqueue，Dispatcher中的排队时间也会算进分位等待，负载高时会产生无意义的对冲并耗尽重试预算
+     */
+    private Outcome executeHedged(Request request, OkHttpClient client, HostState host) {
+        long start = System.nanoTime();
+        Hedge hedge = new Hedge(request, client, newCall(request, client), start);
+        ScheduledFuture<?> timer = HEDGE_TIMER.schedule(hedge::launch, host.latency.percentileNanos(), TimeUnit.NANOSECONDS);
+        Outcome primaryOutcome = executeCall(hedge.primary, start);
+        timer.cancel(false);
+        return hedge.resolve(primaryOutcome);
+    }
+
+    private class Hedge {
+        final Request request;
+        final OkHttpClient client;
+        final Call primary;
+        final long start;
+        // 以下字段在持有this锁时读写
+        private boolean resolved;
+        private Call backup;
+        private CompletableFuture<Outcome> backupFuture;
+
+        Hedge(Request request, OkHttpClient client, Call primary, long start) {
+            this.request = request;
+            this.client = client;
+            this.primary = primary;
+            this.start = start;
+        }
+
+        synchronized void launch() {
+            if(resolved){
+                return;
+            }
+            if(!retryBudget.tryWithdraw()){
+                BUDGET_EXHAUSTED.increment();
+                return;
+            }
+            HEDGES.increment();
+            backup = newCall(request, client);
+            backupFuture = enqueue(backup, start);
+            // 对冲请求先正常返回时取消主请求，调用线程上的execute随即以IOException返回
+            backupFuture.thenAccept(outcome -> {
+                if(outcome.isServerHealthy()){
+                    primary.cancel();
+                }
+            });
+        }
+
+        Outcome resolve(Outcome primaryOutcome) {
+            Call backupCall;
+            CompletableFuture<Outcome> future;
+            synchronized (this) {
+                resolved = true;
+                backupCall = backup;
+                future = backupFuture;
+            }
+            if(future == null){
+                return primaryOutcome;
+            }
+            if(primaryOutcome.isServerHealthy()){
+                backupCall.cancel();
+                return primaryOutcome;
+            }
+            Outcome backupOutcome = await(future, backupCall, start);
+            if(backupOutcome.isServerHealthy()){
+                return new Outcome(backupOutcome.code, backupOutcome.body, backupOutcome.error, backupOutcome.latencyNanos, true);
+            }
+            return primaryOutcome;
+        }
+    }
+
+    private static Outcome await(CompletableFuture<Outcome> future, Call call, long start) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            call.cancel();
+            Thread.currentThread().interrupt();
+            return new Outcome(0, null, new InterruptedIOException("interrupted"), System.nanoTime() - start);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CompletableFuture<Outcome> enqueue(Call call, long start) {
+        CompletableFuture<Outcome> future = new CompletableFuture<>();
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.complete(new Outcome(0, null, e, System.nanoTime() - start));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    ResponseBody body = r.body();
+                    future.complete(new Outcome(r.code(), body == null ? null : body.string(), null, System.nanoTime() - start));
+                } catch (IOException e) {
+                    future.complete(new Outcome(0, null, e, System.nanoTime() - start));
+                }
+            }
+        });
+        return future;
+    }
+
+    private Call newCall(Request request, OkHttpClient client) {
+        Call call = client.newCall(request);
+        call.timeout().timeout(policy.getCallTimeoutMillis(), TimeUnit.MILLISECONDS);
+        return call;
+    }
+
+    private HttpError error(Outcome outcome) {
+        if(outcome.error != null){
+            return HttpError.of(outcome.error);
+        }
+        if(policy.effectiveRetryStatuses().contains(outcome.code)){
+            return HttpError.status(outcome.code);
+        }
+        return null;
+    }
+
+    private static boolean isRetryable(HttpError error, boolean idempotent) {
+        switch (error.getType()) {
+            case CONNECT_FAILED:
+                return true;
+            case TIMEOUT:
+            case IO_ERROR:
+            case HTTP_STATUS:
+                return idempotent;
+            default:
+                return false;
+        }
+    }
+
+    private long backoffMillis(int attempt) {
+        double backoff = policy.getInitialBackoffMillis() * Math.pow(policy.getBackoffMultiplier(), attempt - 1);
+        long cap = (long) Math.min(policy.getMaxBackoffMillis(), backoff);
+        // 一半固定一半随机，避免多个调用方同时重试
+        return cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static HttpResult result(Outcome outcome, HttpError error, int attempts, boolean hedged, long start) {
+        int code = outcome == null || outcome.error != null ? 0 : outcome.code;
+        String body = outcome == null ? null : outcome.body;
+        return new HttpResult(code, body, error, attempts, hedged, System.nanoTime() - start);
+    }
+
+    private static boolean isIdempotent(String method) {
+        switch (method) {
+            case "GET":
+            case "HEAD":
+            case "PUT":
+            case "DELETE":
+            case "OPTIONS":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String hostKey(HttpUrl url) {
+        return url.host() + ':' + url.port();
+    }
+}
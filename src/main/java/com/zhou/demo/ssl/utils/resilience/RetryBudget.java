@@ -0,0 +1,75 @@
+package com.zhou.demo.ssl.utils.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ClassName RetryBudget
+ * @Author JackZhou
+ * @Desc  全局重试预算，防止下游故障时重试把流量放大成重试风暴
+ *
+ * 每个请求存入ratio个额度，每次重试(或对冲)消耗1个；另外每秒固定补充minPerSecond个，保证低流量时也能重试。
+ * 额度以千分之一为单位保存，余额上限为maxBalance个。
+ * 补充按double计算并限制在maxBalance以内，长时间没有重试(间隔再长)也不会溢出。
+ **/
+public class RetryBudget {
+
+    private static final long UNIT = 1000;
+
+    private final long depositPerRequest;
+    private final long minPerSecond;
+    private final long maxBalance;
+    private final AtomicLong balance;
+    private final AtomicLong lastRefillNanos = new AtomicLong(System.nanoTime());
+
+    public RetryBudget(double ratio, int minPerSecond, int maxBalance) {
+        this.depositPerRequest = (long) (ratio * UNIT);
+        this.minPerSecond = minPerSecond;
+        this.maxBalance = maxBalance * UNIT;
+        this.balance = new AtomicLong(minPerSecond * UNIT);
+    }
+
+    public void deposit() {
+        add(depositPerRequest);
+    }
+
+    public boolean tryWithdraw() {
+        refill();
+        while (true) {
+            long current = balance.get();
+            if(current < UNIT){
+                return false;
+            }
+            if(balance.compareAndSet(current, current - UNIT)){
+                return true;
+            }
+        }
+    }
+
+    public double available() {
+        return (double) balance.get() / UNIT;
+    }
+
+    private void refill() {
+        refill(System.nanoTime());
+    }
+
+    void refill(long now) {
+        long last = lastRefillNanos.get();
+        double elapsedSeconds = (double) (now - last) / TimeUnit.SECONDS.toNanos(1);
+        long tokens = (long) Math.min(maxBalance, elapsedSeconds * minPerSecond * UNIT);
+        if(tokens > 0 && lastRefillNanos.compareAndSet(last, now)){
+            add(tokens);
+        }
+    }
+
+    private void add(long amount) {
+        while (true) {
+            long current = balance.get();
+            long next = Math.min(maxBalance, current + amount);
+            if(next == current || balance.compareAndSet(current, next)){
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.zhou.demo.ssl.ratelimit;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @ClassName GcraRateLimiterTest
+ * @Author JackZhou
+ * @Desc  通过tryAcquire(now)/nanosUntilAvailable(now)驱动时间，验证突发容量、稳定速率和等待时间
+ **/
+public class GcraRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void burstIsAvailableImmediately() {
+        GcraRateLimiter limiter = new GcraRateLimiter(10, 5);
+        long now = 42 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            assertTrue("第" + (i + 1) + "个请求应在突发容量内", limiter.tryAcquire(now));
+        }
+        assertFalse(limiter.tryAcquire(now));
+    }
+
+    @Test
+    public void tokensRefillAtTheConfiguredRate() {
+        GcraRateLimiter limiter = new GcraRateLimiter(10, 1);
+        long now = 7 * SECOND;
+        assertTrue(limiter.tryAcquire(now));
+        assertFalse(limiter.tryAcquire(now + 99 * MILLI));
+        assertTrue(limiter.tryAcquire(now + 100 * MILLI));
+        assertFalse(limiter.tryAcquire(now + 150 * MILLI));
+        assertTrue(limiter.tryAcquire(now + 200 * MILLI));
+    }
+
+    @Test
+    public void steadyStateThroughputMatchesRatePlusBurst() {
+        GcraRateLimiter limiter = new GcraRateLimiter(50, 20);
+        long start = 3 * SECOND;
+        int granted = 0;
+        // 10秒内每毫秒请求一次，远超速率
+        for (long t = 0; t < 10 * SECOND; t += MILLI) {
+            if(limiter.tryAcquire(start + t)){
+                granted++;
+            }
+        }
+        assertEquals(20 + 50 * 10, granted, 1);
+    }
+
+    @Test
+    public void idleTimeRestoresAtMostTheBurst() {
+        GcraRateLimiter limiter = new GcraRateLimiter(10, 3);
+        long now = SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(now));
+        }
+        // 空闲很久之后也只能突发burst个
+        now += 3600 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(now));
+        }
+        assertFalse(limiter.tryAcquire(now));
+    }
+
+    @Test
+    public void nanosUntilAvailableMatchesTheNextAcceptedTime() {
+        GcraRateLimiter limiter = new GcraRateLimiter(10, 2);
+        long now = 5 * SECOND;
+        assertEquals(0, limiter.nanosUntilAvailable(now));
+        assertTrue(limiter.tryAcquire(now));
+        assertEquals(0, limiter.nanosUntilAvailable(now));
+        assertTrue(limiter.tryAcquire(now));
+
+        long wait = limiter.nanosUntilAvailable(now);
+        assertEquals(100 * MILLI, wait);
+        assertFalse(limiter.tryAcquire(now + wait - 1));
+        assertEquals(1, limiter.nanosUntilAvailable(now + wait - 1));
+        assertTrue(limiter.tryAcquire(now + wait));
+    }
+
+    @Test
+    public void negativeNanoTimeIsHandled() {
+        // System.nanoTime()可能为负数
+        GcraRateLimiter limiter = new GcraRateLimiter(10, 1);
+        long now = -10 * SECOND;
+        assertTrue(limiter.tryAcquire(now));
+        assertFalse(limiter.tryAcquire(now + 50 * MILLI));
+        assertTrue(limiter.tryAcquire(now + 100 * MILLI));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroRateIsRejected() {
+        new GcraRateLimiter(0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroBurstIsRejected() {
+        new GcraRateLimiter(1, 0);
+    }
+}
@@ -0,0 +1,162 @@
+package com.zhou.demo.ssl.replication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @ClassName PeerSenderTest
+ * @Author JackZhou
+ * @Desc  用拦截器模拟peer的响应，验证5xx重试、413拆分和其他4xx丢弃
+ **/
+public class PeerSenderTest {
+
+    private static final String PEER = "https://peer.test:11011";
+
+    private final ReplicationProperties properties = new ReplicationProperties();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<String>> delivered = new CopyOnWriteArrayList<>();
+    private ReplicationCodec codec;
+    private PeerSender sender;
+
+    @Before
+    public void setUp() {
+        properties.setLingerMillis(1);
+        properties.setBackoffMillis(5);
+        properties.setMaxBackoffMillis(20);
+        codec = new ReplicationCodec(new ObjectMapper(), properties);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if(sender != null){
+            sender.stop();
+        }
+    }
+
+    @Test
+    public void serverErrorsAreRetriedUntilDelivered() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        start(ids -> calls.incrementAndGet() <= 3 ? 503 : 200, "a", "b", "c");
+
+        await(() -> records("sent") == 3);
+        assertEquals(4, calls.get());
+        assertEquals(0, records("dropped"), 0);
+        assertEquals(ids("a", "b", "c"), delivered.get(0));
+    }
+
+    @Test
+    public void payloadTooLargeSplitsTheBatchInOrder() throws Exception {
+        // peer每次最多接受2条
+        start(ids -> ids.size() > 2 ? 413 : 200, "a", "b", "c", "d", "e");
+
+        await(() -> records("sent") == 5);
+        assertEquals(0, records("dropped"), 0);
+        List<String> all = new ArrayList<>();
+        for (List<String> ids : delivered) {
+            assertTrue(ids.size() <= 2);
+            all.addAll(ids);
+        }
+        assertEquals(ids("a", "b", "c", "d", "e"), all);
+    }
+
+    @Test
+    public void singleRecordStillTooLargeIsDropped() throws Exception {
+        start(ids -> ids.contains("big") ? 413 : 200, "a", "big", "c");
+
+        await(() -> records("sent") + records("dropped") == 3);
+        assertEquals(1, records("dropped"), 0);
+        assertEquals(ids("a", "c"), delivered.stream().flatMap(List::stream).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void clientErrorsDropTheBatchInsteadOfRetrying() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        start(ids -> calls.incrementAndGet() == 1 ? 403 : 200, "a", "b");
+
+        await(() -> records("dropped") == 2);
+        sender.offer(record("c"));
+        await(() -> records("sent") == 1);
+        assertEquals(2, calls.get());
+        assertEquals(ids("c"), delivered.get(0));
+    }
+
+    /**
+     * 先放入队列再启动，第一批包含全部变更
+     */
+    private void start(Function<List<String>, Integer> peer, String... ids) {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> respond(chain.request(), peer))
+                .build();
+        sender = new PeerSender(PEER, properties, codec, client, meterRegistry);
+        for (String id : ids) {
+            sender.offer(record(id));
+        }
+        sender.start();
+    }
+
+    private Response respond(Request request, Function<List<String>, Integer> peer) throws IOException {
+        Buffer buffer = new Buffer();
+        request.body().writeTo(buffer);
+        List<String> ids = codec.decode(buffer.readByteArray(), true).getRecords().stream()
+                .map(ChangeRecord::getId)
+                .collect(Collectors.toList());
+        int code = peer.apply(ids);
+        if(code == 200){
+            delivered.add(ids);
+        }
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message(String.valueOf(code))
+                .body(ResponseBody.create(null, ""))
+                .build();
+    }
+
+    private double records(String result) {
+        return meterRegistry.get("replication.records").tag("result", result).functionCounter().count();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue("等待超时", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static ChangeRecord record(String id) {
+        return new ChangeRecord(id, null, 1, "node1");
+    }
+
+    private static List<String> ids(String... ids) {
+        List<String> result = new ArrayList<>();
+        for (String id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,78 @@
+package com.zhou.demo.ssl.replication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @ClassName ReplicationVersionsTest
+ * @Author JackZhou
+ * @Desc  last-writer-wins、时钟偏差检查和过期墓碑清理
+ **/
+public class ReplicationVersionsTest {
+
+    private static final long DRIFT = 60000;
+    private static final long MAX_BACKOFF = 5000;
+
+    private ReplicationVersions versions;
+
+    @Before
+    public void setUp() {
+        ReplicationProperties properties = new ReplicationProperties();
+        properties.setNodeId("node1");
+        properties.setMaxClockDriftMillis(DRIFT);
+        properties.setMaxBackoffMillis(MAX_BACKOFF);
+        versions = new ReplicationVersions(properties);
+    }
+
+    @Test
+    public void newerVersionWinsAndTiesAreBrokenByOrigin() {
+        long now = System.currentTimeMillis();
+        assertTrue(versions.advance("a", version(now, 1), "node2", false));
+        assertFalse(versions.advance("a", version(now, 0), "node3", false));
+        assertTrue(versions.advance("a", version(now, 1), "node3", false));
+        assertFalse(versions.advance("a", version(now, 1), "node2", false));
+        // 本地时钟已推进到看到的版本之后
+        assertTrue(versions.stampLocal("b", false) > version(now, 1));
+    }
+
+    @Test
+    public void versionsBeyondClockDriftAreRejected() {
+        long future = System.currentTimeMillis() + DRIFT * 2;
+        assertFalse(versions.advance("a", version(future, 0), "node2", false));
+        assertEquals(0, versions.size());
+    }
+
+    @Test
+    public void onlyExpiredTombstonesArePruned() {
+        long now = System.currentTimeMillis();
+        long old = now - DRIFT - MAX_BACKOFF - 1000;
+        versions.advance("old-tombstone", version(old, 0), "node2", true);
+        versions.advance("old-save", version(old, 0), "node2", false);
+        versions.advance("recent-tombstone", version(now, 0), "node2", true);
+
+        assertEquals(1, versions.pruneTombstones(now));
+
+        assertEquals(2, versions.size());
+        // 清理后该id更旧的保存被当作新记录接受
+        assertTrue(versions.advance("old-tombstone", version(old - 1, 0), "node2", false));
+        assertFalse(versions.advance("recent-tombstone", version(now - 1, 0), "node2", false));
+    }
+
+    @Test
+    public void tombstoneReplacedBySaveIsKept() {
+        long old = System.currentTimeMillis() - DRIFT - MAX_BACKOFF - 1000;
+        versions.advance("a", version(old, 0), "node2", true);
+        versions.stampLocal("a", false);
+
+        assertEquals(0, versions.pruneTombstones(System.currentTimeMillis()));
+        assertEquals(1, versions.size());
+    }
+
+    private static long version(long millis, int logical) {
+        return millis << 16 | logical;
+    }
+}
@@ -0,0 +1,247 @@
+package com.zhou.demo.ssl.repository;
+
+import com.cloud.demo.common.bean.Person;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @ClassName MappedLogPersonRepositoryTest
+ * @Author JackZhou
+ * @Desc  重启恢复、尾部残缺/crc错误时的截断、跨段对齐和压缩后的数据
+ **/
+public class MappedLogPersonRepositoryTest {
+
+    // 段很小，几条记录就会跨段
+    private static final int SEGMENT_SIZE = 256;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Path logPath;
+    private MappedLogPersonRepository repository;
+
+    @Before
+    public void setUp() throws IOException {
+        logPath = folder.getRoot().toPath().resolve("person.log");
+        repository = open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    public void reopenRestoresLatestVersionAndDeletes() throws IOException {
+        repository.save(person("a", 1));
+        repository.save(person("b", 2));
+        repository.save(person("c", 3));
+        repository.delete("b");
+        repository.save(person("a", 10));
+
+        reopen();
+
+        assertEquals(2, repository.count());
+        assertEquals(Integer.valueOf(10), repository.get("a").getAge());
+        assertNull(repository.get("b"));
+        assertEquals(Integer.valueOf(3), repository.get("c").getAge());
+    }
+
+    @Test
+    public void recordsAcrossSegmentsSurviveReopen() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            repository.save(person(id(i), i));
+        }
+        assertTrue("需要跨多个段", Files.size(logPath) > SEGMENT_SIZE * 4);
+
+        reopen();
+
+        assertEquals(50, repository.count());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(Integer.valueOf(i), repository.get(id(i)).getAge());
+        }
+        assertEquals(ids(0, 50), ids(repository.findPage(null, 100)));
+    }
+
+    @Test
+    public void tornTailIsTruncated() throws IOException {
+        repository.save(person("a", 1));
+        repository.save(person("b", 2));
+        repository.close();
+
+        // 模拟最后一条记录只写了一部分
+        truncate(recordSize(person("a", 1)) + recordSize(person("b", 2)) - 3);
+        repository = open();
+
+        assertEquals(1, repository.count());
+        assertEquals(Integer.valueOf(1), repository.get("a").getAge());
+        assertNull(repository.get("b"));
+
+        // 截断后的位置可以继续追加
+        repository.save(person("c", 3));
+        reopen();
+        assertEquals(ids("a", "c"), ids(repository.findPage(null, 10)));
+    }
+
+    @Test
+    public void crcMismatchDropsRecordAndEverythingAfterIt() throws IOException {
+        repository.save(person("a", 1));
+        long secondRecord = recordSize(person("a", 1));
+        repository.save(person("b", 2));
+        repository.save(person("c", 3));
+        repository.close();
+
+        // 翻转第二条记录json中的一个字节，长度不变但crc不匹配
+        flipByte(secondRecord + 20);
+        repository = open();
+
+        assertEquals(ids("a"), ids(repository.findPage(null, 10)));
+        // 从损坏的记录处截断，再写入的记录紧跟在a之后
+        repository.save(person("d", 4));
+        reopen();
+        assertEquals(ids("a", "d"), ids(repository.findPage(null, 10)));
+    }
+
+    @Test
+    public void compactionKeepsLiveRecordsAndShrinksLog() throws IOException {
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 20; i++) {
+                repository.save(person(id(i), round * 100 + i));
+            }
+        }
+        for (int i = 0; i < 20; i += 2) {
+            repository.delete(id(i));
+        }
+        reopen();
+        long before = Files.size(logPath);
+
+        repository.compact();
+
+        assertFalse(Files.exists(logPath.resolveSibling("person.log.compact")));
+        assertLiveRecords(10);
+        // 压缩后追加写仍然正常
+        repository.save(person("z", 1));
+
+        reopen();
+        long after = Files.size(logPath);
+        assertTrue("压缩后应变小: " + before + " -> " + after, after < before / 2);
+        assertLiveRecords(11);
+        assertEquals(Integer.valueOf(1), repository.get("z").getAge());
+    }
+
+    @Test
+    public void leftoverCompactFileIsIgnored() throws IOException {
+        repository.save(person("a", 1));
+        repository.close();
+        Files.write(logPath.resolveSibling("person.log.compact"), new byte[]{1, 2, 3});
+
+        repository = open();
+
+        assertEquals(Integer.valueOf(1), repository.get("a").getAge());
+        assertFalse(Files.exists(logPath.resolveSibling("person.log.compact")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void idLongerThanUnsignedShortIsRejected() {
+        StringBuilder id = new StringBuilder();
+        for (int i = 0; i <= 0xFFFF; i++) {
+            id.append('x');
+        }
+        repository.save(person(id.toString(), 1));
+    }
+
+    private void assertLiveRecords(int count) {
+        assertEquals(count, repository.count());
+        for (int i = 0; i < 20; i++) {
+            Person person = repository.get(id(i));
+            if(i % 2 == 0){
+                assertNull(person);
+            }else {
+                assertEquals(Integer.valueOf(400 + i), person.getAge());
+            }
+        }
+    }
+
+    private MappedLogPersonRepository open() throws IOException {
+        MappedLogPersonRepository opened = new MappedLogPersonRepository(objectMapper, logPath.toString(), SEGMENT_SIZE, 0, 0.5);
+        opened.open();
+        return opened;
+    }
+
+    private void reopen() throws IOException {
+        repository.close();
+        repository = open();
+    }
+
+    /**
+     * 长度 + crc + 类型 + id长度 + id + json，文件大小按段对齐，不能用来判断记录边界
+     */
+    private long recordSize(Person person) throws IOException {
+        return 8 + 3 + person.getId().length() + objectMapper.writeValueAsBytes(person).length;
+    }
+
+    private void truncate(long size) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(logPath.toFile(), "rw")) {
+            file.setLength(size);
+        }
+    }
+
+    private void flipByte(long position) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(logPath.toFile(), "rw")) {
+            file.seek(position);
+            int b = file.read();
+            file.seek(position);
+            file.write(b ^ 0xFF);
+        }
+    }
+
+    private static Person person(String id, int age) {
+        Person person = new Person();
+        person.setId(id);
+        person.setName("name-" + id);
+        person.setAge(age);
+        return person;
+    }
+
+    private static String id(int i) {
+        return String.format("p%03d", i);
+    }
+
+    private static List<String> ids(int from, int to) {
+        List<String> ids = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            ids.add(id(i));
+        }
+        return ids;
+    }
+
+    private static List<String> ids(String... ids) {
+        List<String> result = new ArrayList<>();
+        for (String id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    private static List<String> ids(List<Person> persons) {
+        return persons.stream().map(Person::getId).collect(Collectors.toList());
+    }
+}
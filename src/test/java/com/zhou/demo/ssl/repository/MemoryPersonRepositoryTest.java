@@ -0,0 +1,65 @@
+package com.zhou.demo.ssl.repository;
+
+import com.cloud.demo.common.bean.Person;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @ClassName MemoryPersonRepositoryTest
+ * @Author JackZhou
+ * @Desc  点查和有序id集合保持一致，游标分页按id升序
+ **/
+public class MemoryPersonRepositoryTest {
+
+    private final MemoryPersonRepository repository = new MemoryPersonRepository();
+
+    @Test
+    public void saveReturnsPreviousAndDeleteRemovesFromPages() {
+        Person first = person("b");
+        assertNull(repository.save(first));
+        assertSame(first, repository.save(person("b")));
+        repository.save(person("a"));
+        repository.save(person("c"));
+
+        assertEquals(Arrays.asList("a", "b", "c"), ids(repository.findPage(null, 10)));
+        assertEquals("b", repository.delete("b").getId());
+        assertNull(repository.delete("b"));
+
+        assertEquals(2, repository.count());
+        assertNull(repository.get("b"));
+        assertEquals(Arrays.asList("a", "c"), ids(repository.findPage(null, 10)));
+    }
+
+    @Test
+    public void cursorPagingStartsAfterTheGivenId() {
+        for (String id : new String[]{"e", "a", "d", "b", "c"}) {
+            repository.save(person(id));
+        }
+
+        assertEquals(Arrays.asList("a", "b"), ids(repository.findPage(null, 2)));
+        assertEquals(Arrays.asList("c", "d"), ids(repository.findPage("b", 2)));
+        // 游标本身已被删除时仍从它之后开始
+        repository.delete("d");
+        assertEquals(Arrays.asList("e"), ids(repository.findPage("d", 2)));
+        assertEquals(Arrays.asList(), ids(repository.findPage("e", 2)));
+    }
+
+    private static Person person(String id) {
+        Person person = new Person();
+        person.setId(id);
+        person.setName("name-" + id);
+        person.setAge(1);
+        return person;
+    }
+
+    private static List<String> ids(List<Person> persons) {
+        return persons.stream().map(Person::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,130 @@
+package com.zhou.demo.ssl.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @ClassName MpscRingBufferTest
+ * @Author JackZhou
+ * @Desc  容量取整、队列满、多轮环绕和多生产者并发入队
+ **/
+public class MpscRingBufferTest {
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(2, new MpscRingBuffer<>(2).capacity());
+        assertEquals(4, new MpscRingBuffer<>(3).capacity());
+        assertEquals(4, new MpscRingBuffer<>(4).capacity());
+        assertEquals(1024, new MpscRingBuffer<>(1000).capacity());
+    }
+
+    @Test
+    public void offerFailsWhenFullAndSucceedsAfterPoll() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        assertNull(buffer.poll());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+
+        assertEquals(Integer.valueOf(0), buffer.poll());
+        assertTrue(buffer.offer(4));
+        assertFalse(buffer.offer(5));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(Integer.valueOf(i), buffer.poll());
+        }
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void preservesOrderAcrossManyWraparounds() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(8);
+        int next = 0;
+        int expected = 0;
+        // 每轮入队和出队的数量不同，槽位序号会多次绕过容量
+        for (int round = 0; round < 1000; round++) {
+            int offers = round % 8 + 1;
+            for (int i = 0; i < offers && buffer.offer(next); i++) {
+                next++;
+            }
+            int polls = (round * 3) % 8 + 1;
+            for (int i = 0; i < polls; i++) {
+                Integer value = buffer.poll();
+                if(value == null){
+                    break;
+                }
+                assertEquals(Integer.valueOf(expected++), value);
+            }
+        }
+        for (Integer value = buffer.poll(); value != null; value = buffer.poll()) {
+            assertEquals(Integer.valueOf(expected++), value);
+        }
+        assertEquals(next, expected);
+        assertTrue("需要多次环绕", next > 8 * 100);
+    }
+
+    @Test
+    public void concurrentProducersLoseNothingAndKeepPerProducerOrder() throws Exception {
+        int producers = 4;
+        int perProducer = 200_000;
+        MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(64);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> rejected = new ArrayList<>();
+        try {
+            for (int p = 0; p < producers; p++) {
+                long producer = p;
+                rejected.add(executor.submit(() -> {
+                    start.await();
+                    int full = 0;
+                    for (long i = 0; i < perProducer; i++) {
+                        long[] element = {producer, i};
+                        while (!buffer.offer(element)) {
+                            full++;
+                            Thread.yield();
+                        }
+                    }
+                    return full;
+                }));
+            }
+            start.countDown();
+
+            long[] nextExpected = new long[producers];
+            long received = 0;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (received < (long) producers * perProducer) {
+                long[] element = buffer.poll();
+                if(element == null){
+                    assertTrue("消费超时，已收到" + received, System.nanoTime() < deadline);
+                    Thread.yield();
+                    continue;
+                }
+                int producer = (int) element[0];
+                assertEquals("生产者" + producer + "的元素乱序或丢失", nextExpected[producer], element[1]);
+                nextExpected[producer]++;
+                received++;
+            }
+            assertNull(buffer.poll());
+            int fullCount = 0;
+            for (Future<Integer> future : rejected) {
+                fullCount += future.get(10, TimeUnit.SECONDS);
+            }
+            // 容量远小于总量，必然出现过队列满
+            assertTrue(fullCount > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.zhou.demo.ssl.utils.resilience;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @ClassName RetryBudgetTest
+ * @Author JackZhou
+ * @Desc  存入、消耗、按时间补充，以及长时间空闲后补充不溢出
+ **/
+public class RetryBudgetTest {
+
+    private static final double DELTA = 0.01;
+
+    @Test
+    public void depositsAndWithdrawals() {
+        RetryBudget budget = new RetryBudget(0.5, 0, 100);
+        assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        assertTrue(budget.tryWithdraw());
+        assertEquals(0, budget.available(), DELTA);
+    }
+
+    @Test
+    public void refillsMinPerSecond() {
+        RetryBudget budget = new RetryBudget(0.2, 10, 100);
+        drain(budget);
+        long now = System.nanoTime();
+        budget.refill(now + TimeUnit.SECONDS.toNanos(1));
+        assertEquals(10, budget.available(), 0.5);
+    }
+
+    @Test
+    public void balanceIsCappedAtMax() {
+        RetryBudget budget = new RetryBudget(0.2, 10, 100);
+        drain(budget);
+        budget.refill(System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+        assertEquals(100, budget.available(), DELTA);
+    }
+
+    @Test
+    public void longIdlePeriodDoesNotOverflow() {
+        RetryBudget budget = new RetryBudget(0.2, 10, 100);
+        drain(budget);
+        // (now - last) * minPerSecond * 1000 超过Long.MAX_VALUE约需10.7天
+        long now = System.nanoTime();
+        for (long days : new long[]{11, 30, 365 * 100}) {
+            budget.refill(now + TimeUnit.DAYS.toNanos(days));
+            assertEquals("空闲" + days + "天后应补满", 100, budget.available(), DELTA);
+            drain(budget);
+        }
+    }
+
+    @Test
+    public void largeMaxBalanceDoesNotOverflow() {
+        // 初始余额已经是上限，补充后不能因溢出变成负数
+        RetryBudget budget = new RetryBudget(0.2, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        budget.refill(System.nanoTime() + TimeUnit.DAYS.toNanos(365));
+        assertEquals(Integer.MAX_VALUE, budget.available(), 1);
+    }
+
+    private static void drain(RetryBudget budget) {
+        int withdrawn = 0;
+        while (budget.tryWithdraw()) {
+            withdrawn++;
+        }
+        assertTrue("取出" + withdrawn + "次后余额应不足1", budget.available() < 1);
+    }
+}